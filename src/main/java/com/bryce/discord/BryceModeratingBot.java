@@ -3,7 +3,9 @@ package com.bryce.discord;
 import com.bryce.discord.analytics.ModerationAnalytics;
 import com.bryce.discord.commands.CommandManager;
 import com.bryce.discord.listeners.MessageListener;
+import com.bryce.discord.models.BackupManifest;
 import com.bryce.discord.services.*;
+import com.bryce.discord.utils.FormatUtils;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.OnlineStatus;
@@ -14,8 +16,13 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class BryceModeratingBot {
 
@@ -26,8 +33,18 @@ public class BryceModeratingBot {
     private final MessageListener messageListener;
     private final CommandManager commandManager;
     private final BackupService backupService;
+    private final ScheduledActionService scheduledActions;
+    private final SchedulerService scheduler;
+    private final LoggingService loggingService;
+    private final EvidenceService evidenceService;
+    private final MessageDeleteBatcher deleteBatcher;
 
     public BryceModeratingBot() {
+        scheduler = new SchedulerService();
+        loggingService = new LoggingService(scheduler);
+        deleteBatcher = new MessageDeleteBatcher(scheduler);
+        evidenceService = new EvidenceService();
+
         backupService = new BackupService();
         backupService.restoreFromBackup();
 
@@ -35,23 +52,28 @@ public class BryceModeratingBot {
 
         dataService = new DataService();
         dataService.loadAllData();
-        dataService.loadMuteRoleIdFromDatabase();
 
         configService = new ConfigService();
 
         analytics = new ModerationAnalytics(dataService);
 
-        messageListener = new MessageListener(dataService, configService, analytics);
+        messageListener = new MessageListener(dataService, configService, analytics, loggingService, deleteBatcher);
+
+        scheduledActions = new ScheduledActionService();
 
-        commandManager = new CommandManager(dataService, configService, analytics);
+        commandManager = new CommandManager(dataService, configService, analytics, scheduledActions, loggingService,
+                scheduler, evidenceService);
 
         setupChannelRestrictions();
 
         setupRoles();
 
+        configService.loadConfiguration();
+        configService.startWatching();
+
         setupAutoSave();
 
-        backupService.startAutoBackup();
+        backupService.startAutoBackup(scheduler);
 
         System.out.println("🔄 Bot initialized with backup protection!");
     }
@@ -113,19 +135,19 @@ public class BryceModeratingBot {
     }
 
     private void setupAutoSave() {
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (dataService.isDataModified()) {
-                    dataService.saveAllData();
-                    backupService.createBackup();
-                }
+        scheduler.scheduleAtFixedRate("autosave", () -> {
+            if (dataService.isDataModified()) {
+                dataService.saveAllData();
+                backupService.createBackup();
             }
-        }, AUTOSAVE_MINUTES * 60 * 1000, AUTOSAVE_MINUTES * 60 * 1000);
+        }, AUTOSAVE_MINUTES, AUTOSAVE_MINUTES, TimeUnit.MINUTES);
     }
 
     public static void main(String[] args) {
+        if (!handleBackupOptions(args)) {
+            return;
+        }
+
         BryceModeratingBot bot = new BryceModeratingBot();
 
         String token = System.getenv("BOT_TOKEN");
@@ -156,11 +178,19 @@ public class BryceModeratingBot {
             }
         }
 
+        // The warm-up only reads stored analytics, so it overlaps the gateway login unless migration 6 still has to
+        // assign pre-guild rows to a guild; then it waits for that, or it would index them under guild 0.
+        boolean warmUpAfterMigration = SchemaMigrator.hasPendingGuildMigrations();
+        if (!warmUpAfterMigration) {
+            bot.analytics.startWarmUp();
+        }
+
+        // Message and command listeners are attached after the guild-dependent migrations, once the data they read is final.
         JDA jda = JDABuilder.createDefault(token)
                 .enableIntents(GatewayIntent.MESSAGE_CONTENT, GatewayIntent.GUILD_MESSAGES)
-                .addEventListeners(bot.messageListener)
-                .addEventListeners(bot.commandManager)
                 .addEventListeners(new com.bryce.discord.listeners.GuildJoinListener(bot.dataService))
+                .addEventListeners(new com.bryce.discord.listeners.PermissionCacheListener(bot.configService))
+                .addEventListeners(new com.bryce.discord.listeners.LogChannelListener(bot.loggingService))
                 .setStatus(onlineStatus)
                 .setActivity(Activity.playing(statusText))
                 .build();
@@ -187,9 +217,25 @@ public class BryceModeratingBot {
 
         try {
             jda.awaitReady();
+
+            // getGuilds() leaves out guilds that are down in an outage; migration 6 must see those too.
+            SchemaMigrator.migrateWithGuilds(
+                    jda.getGuildCache().applyStream(guilds -> guilds.map(guild -> guild.getIdLong()).toList()),
+                    jda.getUnavailableGuilds().stream().map(Long::parseLong).toList());
+            bot.dataService.loadGuildSettingsFromDatabase();
+            if (warmUpAfterMigration) {
+                bot.analytics.startWarmUp();
+            }
+
+            jda.addEventListener(bot.messageListener, bot.commandManager);
             bot.commandManager.registerCommands(jda);
+            bot.scheduledActions.start(jda);
         } catch (InterruptedException e) {
             e.printStackTrace();
+        } catch (IllegalStateException e) {
+            System.err.println("❌ Startup aborted: " + e.getMessage());
+            jda.shutdownNow();
+            throw e;
         }
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -197,14 +243,35 @@ public class BryceModeratingBot {
 
             try {
 
+                // Stop producers first: commands, periodic tasks, the config watcher and scheduled actions, then flush and close storage.
+                bot.commandManager.shutdown();
+
+                bot.scheduler.shutdown();
+
+                bot.configService.stopWatching();
+
+                bot.scheduledActions.shutdown();
+
+                bot.deleteBatcher.shutdown();
+
+                bot.evidenceService.shutdown();
+
+                bot.loggingService.shutdown();
+
                 bot.dataService.saveAllData();
 
+                bot.dataService.shutdown();
+
                 bot.backupService.onShutdown();
 
+                System.out.println("[ConfigService] " + bot.configService.getPermissionCacheStats());
+
+                DatabaseManager.shutdown();
+
                 if (jda != null) {
                     jda.shutdown();
                     try {
-                        if (!jda.awaitShutdown(5, java.util.concurrent.TimeUnit.SECONDS)) {
+                        if (!jda.awaitShutdown(5, TimeUnit.SECONDS)) {
                             jda.shutdownNow();
                         }
                     } catch (InterruptedException e) {
@@ -220,6 +287,47 @@ public class BryceModeratingBot {
         }));
     }
 
+    // --list-snapshots prints the available snapshots and exits. --restore-to <time> replaces the live database with
+    // the newest snapshot at or before <time> (ISO-8601 instant, local date-time, or epoch millis), then starts normally.
+    private static boolean handleBackupOptions(String[] args) {
+        if (args.length == 0) {
+            return true;
+        }
+        if (args[0].equals("--list-snapshots")) {
+            List<BackupManifest> snapshots = new BackupService().listSnapshots();
+            System.out.println("[BackupService] " + snapshots.size() + " snapshot(s):");
+            for (BackupManifest snapshot : snapshots) {
+                System.out.println("  " + Instant.ofEpochMilli(snapshot.getCreatedAt()) + "  (" + snapshot.getCreatedAt() + ")  "
+                        + FormatUtils.formatBytes(snapshot.getSize()));
+            }
+            return false;
+        }
+        if (args[0].equals("--restore-to") && args.length == 2) {
+            try {
+                new BackupService().restoreLiveDatabase(parseTimestamp(args[1]));
+                return true;
+            } catch (DateTimeParseException e) {
+                System.err.println("❌ Could not parse restore time '" + args[1] + "'");
+            } catch (IOException | SQLException e) {
+                System.err.println("❌ Restore failed, live database left untouched: " + e.getMessage());
+            }
+            return false;
+        }
+        System.err.println("Usage: [--list-snapshots | --restore-to <time>]");
+        return false;
+    }
+
+    private static long parseTimestamp(String value) {
+        if (value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
     private static String readTokenFromFile(String filename, String prefix) {
         try {
             File file = new File(filename);
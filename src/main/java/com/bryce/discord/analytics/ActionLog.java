@@ -0,0 +1,149 @@
+package com.bryce.discord.analytics;
+
+import com.bryce.discord.models.ModAction;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+public class ActionLog {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Kept sorted by timestamp. A filled slot is never rewritten: late inserts copy the chunks they shift and
+    // publish a new state, so a reader holding an older snapshot keeps seeing a consistent list without locking.
+    private volatile Snapshot state = Snapshot.EMPTY;
+    private int outOfOrderInserts = 0;
+
+    public synchronized void append(ModAction action) {
+        Snapshot current = state;
+        int size = current.size;
+        if (size > 0 && action.getTimestamp() < current.get(size - 1).getTimestamp()) {
+            insertLate(current, action);
+            return;
+        }
+
+        int chunkIndex = size >>> CHUNK_SHIFT;
+        ModAction[][] chunks = current.chunks;
+        if (chunkIndex >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(4, chunks.length * 2));
+        }
+        if (chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new ModAction[CHUNK_SIZE];
+        }
+        chunks[chunkIndex][size & CHUNK_MASK] = action;
+
+        state = new Snapshot(chunks, size + 1);
+    }
+
+    // Delayed callbacks can deliver an action older than the tail; it goes after any equal timestamps.
+    private void insertLate(Snapshot current, ModAction action) {
+        int size = current.size;
+        int position = current.indexAfter(action.getTimestamp());
+        int firstChunk = position >>> CHUNK_SHIFT;
+        int lastChunk = size >>> CHUNK_SHIFT;
+
+        ModAction[][] chunks = Arrays.copyOf(current.chunks, Math.max(current.chunks.length, lastChunk + 1));
+        for (int c = firstChunk; c <= lastChunk; c++) {
+            chunks[c] = chunks[c] != null ? chunks[c].clone() : new ModAction[CHUNK_SIZE];
+        }
+        for (int i = size; i > position; i--) {
+            chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = current.get(i - 1);
+        }
+        chunks[firstChunk][position & CHUNK_MASK] = action;
+
+        outOfOrderInserts++;
+        state = new Snapshot(chunks, size + 1);
+    }
+
+    public int size() {
+        return state.size;
+    }
+
+    public synchronized int getOutOfOrderInserts() {
+        return outOfOrderInserts;
+    }
+
+    public Snapshot snapshot() {
+        return state;
+    }
+
+    public List<ModAction> since(long fromTimestamp) {
+        return state.between(fromTimestamp, Long.MAX_VALUE);
+    }
+
+    public List<ModAction> between(long fromTimestamp, long toTimestamp) {
+        return state.between(fromTimestamp, toTimestamp);
+    }
+
+    public static final class Snapshot extends AbstractList<ModAction> implements RandomAccess {
+        private static final Snapshot EMPTY = new Snapshot(new ModAction[0][], 0);
+
+        private final ModAction[][] chunks;
+        private final int size;
+
+        private Snapshot(ModAction[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        public static Snapshot empty() {
+            return EMPTY;
+        }
+
+        @Override
+        public ModAction get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        // Actions with fromTimestamp <= timestamp < toTimestamp, as a view over this snapshot.
+        public List<ModAction> between(long fromTimestamp, long toTimestamp) {
+            int from = indexOf(fromTimestamp);
+            int to = toTimestamp == Long.MAX_VALUE ? size : indexOf(toTimestamp);
+            if (from >= to) {
+                return EMPTY;
+            }
+            return from == 0 && to == size ? this : subList(from, to);
+        }
+
+        // First index whose timestamp is >= the given one.
+        private int indexOf(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).getTimestamp() < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // First index whose timestamp is > the given one.
+        private int indexAfter(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).getTimestamp() <= timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -2,29 +2,128 @@ package com.bryce.discord.analytics;
 
 import com.bryce.discord.models.ModAction;
 import com.bryce.discord.services.DataService;
+import com.bryce.discord.utils.LongIntMap;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ModerationAnalytics {
-    private final List<ModAction> actions = new ArrayList<>();
-    private final Map<String, List<ModAction>> actionsByModerator = new ConcurrentHashMap<>();
-    private final Map<String, List<ModAction>> actionsByTarget = new ConcurrentHashMap<>();
-    private final Map<ActionType, List<ModAction>> actionsByType = new ConcurrentHashMap<>();
+    private final ActionLog actions = new ActionLog();
+    private final Map<String, ActionLog> actionsByModerator = new ConcurrentHashMap<>();
+    private final Map<String, ActionLog> actionsByTarget = new ConcurrentHashMap<>();
+    private final Map<Long, ActionLog> actionsByGuild = new ConcurrentHashMap<>();
+    private final ActionLog[] actionsByType = new ActionLog[ActionType.values().length];
+    private final Map<Long, RollupCounters> rollupsByGuild = new ConcurrentHashMap<>();
+
+    private static final RollupCounters EMPTY_ROLLUPS = new RollupCounters();
+    private static final int WARM_UP_PAGE_SIZE = 5000;
+    private static final long WARM_UP_WAIT_SECONDS = 30;
 
     private final DataService dataService;
 
+    private final long warmUpBoundaryRowId;
+    private final CountDownLatch warmUpLatch = new CountDownLatch(1);
+    private final AtomicLong warmUpLoaded = new AtomicLong();
+    private volatile boolean warmUpStarted = false;
+    private volatile boolean warmUpComplete = false;
+    private volatile boolean warmUpWaitExpired = false;
+
     public ModerationAnalytics(DataService dataService) {
         this.dataService = dataService;
+        for (int i = 0; i < actionsByType.length; i++) {
+            actionsByType[i] = new ActionLog();
+        }
+        // Rows above this id were written by this process and are already indexed by recordAction.
+        this.warmUpBoundaryRowId = dataService.getModerationAnalyticsMaxRowId();
         System.out.println("ModerationAnalytics initialized (database-backed)");
     }
 
-    public void recordAction(ActionType actionType, User moderator, User target,
+    public synchronized void startWarmUp() {
+        if (warmUpStarted) return;
+        warmUpStarted = true;
+
+        Thread warmUpThread = new Thread(this::runWarmUp, "Analytics-WarmUp");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    private void runWarmUp() {
+        long start = System.nanoTime();
+        System.out.println("[ModerationAnalytics] Warm-up started (" + warmUpBoundaryRowId + " stored rows)");
+        try {
+            dataService.streamModerationAnalytics(warmUpBoundaryRowId, WARM_UP_PAGE_SIZE, page -> {
+                // Rows come back in insert order; sorting the page keeps most of them on the cheap append path.
+                page.sort(Comparator.comparingLong(ModAction::getTimestamp));
+                for (ModAction action : page) {
+                    index(action);
+                }
+                long loaded = warmUpLoaded.addAndGet(page.size());
+                long percent = warmUpBoundaryRowId == 0 ? 100 : Math.min(100, loaded * 100 / warmUpBoundaryRowId);
+                System.out.println("[ModerationAnalytics] Warm-up progress: " + loaded + " actions (" + percent + "%)");
+            });
+            warmUpComplete = true;
+            System.out.println("[ModerationAnalytics] ✅ Warm-up finished: " + warmUpLoaded.get() + " actions in " +
+                    (System.nanoTime() - start) / 1_000_000 + "ms (" + actions.getOutOfOrderInserts() + " out-of-order inserts)");
+        } catch (Exception e) {
+            System.err.println("[ModerationAnalytics] ❌ Warm-up failed after " + warmUpLoaded.get() +
+                    " actions, analytics will only cover partial history: " + e.getMessage());
+        } finally {
+            warmUpLatch.countDown();
+        }
+    }
+
+    public boolean isWarmUpComplete() {
+        return warmUpComplete;
+    }
+
+    // True while stored history is still loading or if loading failed; aggregates then only cover part of it.
+    public boolean isPartial() {
+        return !warmUpComplete;
+    }
+
+    public long getWarmUpLoadedCount() {
+        return warmUpLoaded.get();
+    }
+
+    // Queries wait for the warm-up, but only the first caller pays the full timeout; after that they return at once
+    // and callers label the result with isPartial().
+    private void awaitWarmUp() {
+        if (warmUpComplete || !warmUpStarted || warmUpWaitExpired) return;
+        try {
+            if (!warmUpLatch.await(WARM_UP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                warmUpWaitExpired = true;
+                System.err.println("[ModerationAnalytics] Warm-up still running after " + WARM_UP_WAIT_SECONDS +
+                        "s, returning partial results (" + warmUpLoaded.get() + " actions loaded)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Each key has its own log and lock, so writers only contend when they touch the same moderator, target or type.
+    private void index(ModAction action) {
+        actions.append(action);
+
+        actionsByModerator.computeIfAbsent(action.getModeratorId(), k -> new ActionLog()).append(action);
+        if (!action.getTargetId().equals("0")) {
+            actionsByTarget.computeIfAbsent(action.getTargetId(), k -> new ActionLog()).append(action);
+        }
+        actionsByType[action.getActionType().ordinal()].append(action);
+        actionsByGuild.computeIfAbsent(action.getGuildId(), k -> new ActionLog()).append(action);
+
+        rollupsByGuild.computeIfAbsent(action.getGuildId(), k -> new RollupCounters()).record(action);
+    }
+
+    public void recordAction(Guild guild, ActionType actionType, User moderator, User target,
                              String reason, int duration, int count) {
         ModAction action = new ModAction(
+                guild != null ? guild.getIdLong() : 0L,
                 actionType,
                 moderator.getId(),
                 moderator.getName(),
@@ -36,19 +135,14 @@ public class ModerationAnalytics {
                 count
         );
 
-        actions.add(action);
-
-        actionsByModerator.computeIfAbsent(moderator.getId(), k -> new ArrayList<>()).add(action);
-        if (target != null) {
-            actionsByTarget.computeIfAbsent(target.getId(), k -> new ArrayList<>()).add(action);
-        }
-        actionsByType.computeIfAbsent(actionType, k -> new ArrayList<>()).add(action);
+        index(action);
 
         dataService.saveModerationAnalytics(action);
     }
 
-    public void recordPurge(User moderator, int messageCount, String channelName) {
+    public void recordPurge(Guild guild, User moderator, int messageCount, String channelName) {
         ModAction action = new ModAction(
+                guild != null ? guild.getIdLong() : 0L,
                 ActionType.PURGE,
                 moderator.getId(),
                 moderator.getName(),
@@ -60,127 +154,164 @@ public class ModerationAnalytics {
                 messageCount
         );
 
-        actions.add(action);
-
-        actionsByModerator.computeIfAbsent(moderator.getId(), k -> new ArrayList<>()).add(action);
-        actionsByType.computeIfAbsent(ActionType.PURGE, k -> new ArrayList<>()).add(action);
+        index(action);
 
         dataService.saveModerationAnalytics(action);
     }
 
     public List<ModAction> getActionsByPeriod(int days) {
-        if (days <= 0) return new ArrayList<>(actions);
-
-        long cutoffTime = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
-        return actions.stream()
-                .filter(action -> action.getTimestamp() >= cutoffTime)
-                .collect(Collectors.toList());
+        awaitWarmUp();
+        return filterByPeriod(actions.snapshot(), days);
     }
 
     public List<ModAction> getActionsByModerator(String moderatorId, int days) {
-        List<ModAction> moderatorActions = actionsByModerator.getOrDefault(moderatorId, new ArrayList<>());
-
-        if (days <= 0) return moderatorActions;
-
-        long cutoffTime = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
-        return moderatorActions.stream()
-                .filter(action -> action.getTimestamp() >= cutoffTime)
-                .collect(Collectors.toList());
+        awaitWarmUp();
+        return filterByPeriod(snapshotOf(actionsByModerator.get(moderatorId)), days);
     }
 
     public List<ModAction> getActionsByTarget(String targetId, int days) {
-        List<ModAction> targetActions = actionsByTarget.getOrDefault(targetId, new ArrayList<>());
-
-        if (days <= 0) return targetActions;
+        awaitWarmUp();
+        return filterByPeriod(snapshotOf(actionsByTarget.get(targetId)), days);
+    }
 
-        long cutoffTime = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
-        return targetActions.stream()
-                .filter(action -> action.getTimestamp() >= cutoffTime)
-                .collect(Collectors.toList());
+    public List<ModAction> getActionsByGuild(long guildId, int days) {
+        awaitWarmUp();
+        return filterByPeriod(snapshotOf(actionsByGuild.get(guildId)), days);
     }
 
     public List<ModAction> getActionsByType(ActionType type, int days) {
-        List<ModAction> typeActions = actionsByType.getOrDefault(type, new ArrayList<>());
+        awaitWarmUp();
+        return filterByPeriod(actionsByType[type.ordinal()].snapshot(), days);
+    }
+
+    private static ActionLog.Snapshot snapshotOf(ActionLog log) {
+        return log != null ? log.snapshot() : ActionLog.Snapshot.empty();
+    }
 
-        if (days <= 0) return typeActions;
+    // Logs are kept in timestamp order, so the window is a binary-searched view of the snapshot's tail.
+    private static List<ModAction> filterByPeriod(ActionLog.Snapshot snapshot, int days) {
+        if (days <= 0) return snapshot;
 
         long cutoffTime = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
-        return typeActions.stream()
-                .filter(action -> action.getTimestamp() >= cutoffTime)
-                .collect(Collectors.toList());
+        return snapshot.between(cutoffTime, Long.MAX_VALUE);
     }
 
-    public Map<String, Integer> getTopModerators(int days, int limit) {
-        List<ModAction> periodActions = getActionsByPeriod(days);
+    public Map<String, Integer> getTopModerators(long guildId, int days, int limit) {
+        awaitWarmUp();
+        Window window = window(days);
+        RollupCounters rollups = rollupsFor(guildId);
 
-        Map<String, Integer> moderatorCounts = new HashMap<>();
-        Map<String, String> moderatorNames = new HashMap<>();
-
-        for (ModAction action : periodActions) {
-            moderatorCounts.put(action.getModeratorId(),
-                    moderatorCounts.getOrDefault(action.getModeratorId(), 0) + 1);
-            moderatorNames.put(action.getModeratorId(), action.getModeratorName());
+        LongIntMap moderatorCounts = new LongIntMap();
+        rollups.addModeratorCounts(window.firstFullDay, Long.MAX_VALUE, moderatorCounts);
+        for (ModAction action : edgeActions(guildId, window)) {
+            moderatorCounts.add(rollups.keyOf(action.getModeratorId()), 1);
         }
 
-        return moderatorCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(limit)
-                .collect(Collectors.toMap(
-                        entry -> moderatorNames.getOrDefault(entry.getKey(), entry.getKey()),
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (long key : moderatorCounts.topKeys(limit)) {
+            String name = rollups.moderatorName(key);
+            result.putIfAbsent(name != null ? name : String.valueOf(key), moderatorCounts.get(key));
+        }
+        return result;
     }
 
-    public Map<String, Integer> getTopModeratedUsers(int days, int limit) {
-        List<ModAction> periodActions = getActionsByPeriod(days);
-
-        Map<String, Integer> targetCounts = new HashMap<>();
-        Map<String, String> targetNames = new HashMap<>();
-
-        for (ModAction action : periodActions) {
-            if (action.getTargetId().equals("0")) continue;
+    public Map<String, Integer> getTopModeratedUsers(long guildId, int days, int limit) {
+        awaitWarmUp();
+        Window window = window(days);
+        RollupCounters rollups = rollupsFor(guildId);
 
-            targetCounts.put(action.getTargetId(),
-                    targetCounts.getOrDefault(action.getTargetId(), 0) + 1);
-            targetNames.put(action.getTargetId(), action.getTargetName());
+        LongIntMap targetCounts = new LongIntMap();
+        rollups.addTargetCounts(window.firstFullDay, Long.MAX_VALUE, targetCounts);
+        for (ModAction action : edgeActions(guildId, window)) {
+            if (!RollupCounters.isTargeted(action)) continue;
+            targetCounts.add(rollups.keyOf(action.getTargetId()), 1);
         }
 
-        return targetCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(limit)
-                .collect(Collectors.toMap(
-                        entry -> targetNames.getOrDefault(entry.getKey(), entry.getKey()),
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (long key : targetCounts.topKeys(limit)) {
+            String name = rollups.targetName(key);
+            result.putIfAbsent(name != null ? name : String.valueOf(key), targetCounts.get(key));
+        }
+        return result;
     }
 
-    public Map<ActionType, Integer> getActionCountsByType(int days) {
-        List<ModAction> periodActions = getActionsByPeriod(days);
-
-        Map<ActionType, Integer> typeCounts = new HashMap<>();
+    public Map<ActionType, Integer> getActionCountsByType(long guildId, int days) {
+        awaitWarmUp();
+        Window window = window(days);
 
-        for (ModAction action : periodActions) {
-            typeCounts.put(action.getActionType(),
-                    typeCounts.getOrDefault(action.getActionType(), 0) + 1);
+        int[] counts = new int[ActionType.values().length];
+        rollupsFor(guildId).addTypeCounts(window.firstFullDay, Long.MAX_VALUE, counts);
+        for (ModAction action : edgeActions(guildId, window)) {
+            counts[action.getActionType().ordinal()]++;
         }
 
+        Map<ActionType, Integer> typeCounts = new EnumMap<>(ActionType.class);
+        for (ActionType type : ActionType.values()) {
+            if (counts[type.ordinal()] > 0) {
+                typeCounts.put(type, counts[type.ordinal()]);
+            }
+        }
         return typeCounts;
     }
 
-    public Map<LocalDate, Integer> getActionCountsByDay(int days) {
-        List<ModAction> periodActions = getActionsByPeriod(days);
+    public Map<LocalDate, Integer> getActionCountsByDay(long guildId, int days) {
+        awaitWarmUp();
+        Window window = window(days);
+        RollupCounters rollups = rollupsFor(guildId);
 
         Map<LocalDate, Integer> dayCounts = new TreeMap<>();
 
-        for (ModAction action : periodActions) {
-            LocalDate date = action.getDate();
-            dayCounts.put(date, dayCounts.getOrDefault(date, 0) + 1);
+        if (window.hasEdge) {
+            int edgeCount = edgeActions(guildId, window).size();
+            if (edgeCount > 0) {
+                dayCounts.put(LocalDate.ofEpochDay(window.firstFullDay - 1), edgeCount);
+            }
+        }
+
+        long lastDay = rollups.getLastDay();
+        for (long day = Math.max(window.firstFullDay, rollups.getFirstDay()); day <= lastDay; day++) {
+            int total = rollups.dayTotal(day);
+            if (total > 0) {
+                dayCounts.put(LocalDate.ofEpochDay(day), total);
+            }
         }
 
         return dayCounts;
     }
+
+    private RollupCounters rollupsFor(long guildId) {
+        RollupCounters rollups = rollupsByGuild.get(guildId);
+        return rollups != null ? rollups : EMPTY_ROLLUPS;
+    }
+
+    // Whole days inside the window come from the rollups; only the partial day at the cutoff is counted from raw actions.
+    private Window window(int days) {
+        if (days <= 0) {
+            return new Window(Long.MIN_VALUE, 0, 0, false);
+        }
+        long cutoffTime = System.currentTimeMillis() - (days * 24L * 60L * 60L * 1000L);
+        long cutoffDay = RollupCounters.epochDay(cutoffTime);
+        return new Window(cutoffDay + 1, cutoffTime, RollupCounters.startOfDay(cutoffDay + 1), true);
+    }
+
+    private List<ModAction> edgeActions(long guildId, Window window) {
+        if (!window.hasEdge) {
+            return ActionLog.Snapshot.empty();
+        }
+        return snapshotOf(actionsByGuild.get(guildId)).between(window.edgeStart, window.edgeEnd);
+    }
+
+    private static final class Window {
+        private final long firstFullDay;
+        private final long edgeStart;
+        private final long edgeEnd;
+        private final boolean hasEdge;
+
+        private Window(long firstFullDay, long edgeStart, long edgeEnd, boolean hasEdge) {
+            this.firstFullDay = firstFullDay;
+            this.edgeStart = edgeStart;
+            this.edgeEnd = edgeEnd;
+            this.hasEdge = hasEdge;
+        }
+    }
 }
\ No newline at end of file
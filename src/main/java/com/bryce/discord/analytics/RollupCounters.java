@@ -0,0 +1,148 @@
+package com.bryce.discord.analytics;
+
+import com.bryce.discord.models.ModAction;
+import com.bryce.discord.utils.LongIntMap;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RollupCounters {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final int TYPE_COUNT = ActionType.values().length;
+
+    private final Map<Long, DayBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, String> moderatorNames = new ConcurrentHashMap<>();
+    private final Map<Long, String> targetNames = new ConcurrentHashMap<>();
+    private final Map<String, Long> syntheticKeys = new ConcurrentHashMap<>();
+    private final AtomicLong nextSyntheticKey = new AtomicLong(-1);
+    private final AtomicLong firstDay = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastDay = new AtomicLong(Long.MIN_VALUE);
+
+    public void record(ModAction action) {
+        long day = epochDay(action.getTimestamp());
+        firstDay.accumulateAndGet(day, Math::min);
+        lastDay.accumulateAndGet(day, Math::max);
+
+        long moderatorKey = keyOf(action.getModeratorId());
+        long targetKey = isTargeted(action) ? keyOf(action.getTargetId()) : 0L;
+        moderatorNames.put(moderatorKey, action.getModeratorName());
+        if (targetKey != 0L) {
+            targetNames.put(targetKey, action.getTargetName());
+        }
+
+        buckets.computeIfAbsent(day, d -> new DayBucket()).record(action.getActionType(), moderatorKey, targetKey);
+    }
+
+    public void addModeratorCounts(long fromDay, long toDay, LongIntMap target) {
+        for (long day = Math.max(fromDay, firstDay.get()); day <= Math.min(toDay, lastDay.get()); day++) {
+            DayBucket bucket = buckets.get(day);
+            if (bucket != null) {
+                bucket.addModeratorCounts(target);
+            }
+        }
+    }
+
+    public void addTargetCounts(long fromDay, long toDay, LongIntMap target) {
+        for (long day = Math.max(fromDay, firstDay.get()); day <= Math.min(toDay, lastDay.get()); day++) {
+            DayBucket bucket = buckets.get(day);
+            if (bucket != null) {
+                bucket.addTargetCounts(target);
+            }
+        }
+    }
+
+    public void addTypeCounts(long fromDay, long toDay, int[] target) {
+        for (long day = Math.max(fromDay, firstDay.get()); day <= Math.min(toDay, lastDay.get()); day++) {
+            DayBucket bucket = buckets.get(day);
+            if (bucket != null) {
+                bucket.addTypeCounts(target);
+            }
+        }
+    }
+
+    public int dayTotal(long day) {
+        DayBucket bucket = buckets.get(day);
+        return bucket != null ? bucket.total() : 0;
+    }
+
+    public long getFirstDay() {
+        return firstDay.get();
+    }
+
+    public long getLastDay() {
+        return lastDay.get();
+    }
+
+    // Snowflakes become their own key; anything else (e.g. "unknown" from old rows) gets a stable negative key.
+    public long keyOf(String id) {
+        if (id != null && !id.isEmpty() && id.length() <= 19 && Character.isDigit(id.charAt(0))) {
+            try {
+                long key = Long.parseLong(id);
+                if (key > 0) {
+                    return key;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        String syntheticId = id != null ? id : "";
+        return syntheticKeys.computeIfAbsent(syntheticId, k -> nextSyntheticKey.getAndDecrement());
+    }
+
+    public String moderatorName(long key) {
+        return moderatorNames.get(key);
+    }
+
+    public String targetName(long key) {
+        return targetNames.get(key);
+    }
+
+    public static boolean isTargeted(ModAction action) {
+        return !action.getTargetId().equals("0");
+    }
+
+    public static long epochDay(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZONE).toLocalDate().toEpochDay();
+    }
+
+    public static long startOfDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static final class DayBucket {
+        private final int[] byType = new int[TYPE_COUNT];
+        private final LongIntMap byModerator = new LongIntMap();
+        private final LongIntMap byTarget = new LongIntMap();
+        private int total;
+
+        synchronized void record(ActionType type, long moderatorKey, long targetKey) {
+            byType[type.ordinal()]++;
+            byModerator.add(moderatorKey, 1);
+            if (targetKey != 0L) {
+                byTarget.add(targetKey, 1);
+            }
+            total++;
+        }
+
+        synchronized void addModeratorCounts(LongIntMap target) {
+            byModerator.addAllTo(target);
+        }
+
+        synchronized void addTargetCounts(LongIntMap target) {
+            byTarget.addAllTo(target);
+        }
+
+        synchronized void addTypeCounts(int[] target) {
+            for (int i = 0; i < byType.length; i++) {
+                target[i] += byType[i];
+            }
+        }
+
+        synchronized int total() {
+            return total;
+        }
+    }
+}
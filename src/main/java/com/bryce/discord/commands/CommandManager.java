@@ -3,6 +3,11 @@ package com.bryce.discord.commands;
 import com.bryce.discord.analytics.ModerationAnalytics;
 import com.bryce.discord.services.ConfigService;
 import com.bryce.discord.services.DataService;
+import com.bryce.discord.services.EvidenceService;
+import com.bryce.discord.services.LoggingService;
+import com.bryce.discord.services.ScheduledActionService;
+import com.bryce.discord.services.SchedulerService;
+import com.bryce.discord.utils.LatencyHistogram;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -11,36 +16,118 @@ import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class CommandManager extends ListenerAdapter {
+    // Discord drops interactions not acknowledged within 3s; defer on the user's behalf before that.
+    private static final long AUTO_DEFER_MS = 2_000;
+    // These change member or guild state, so within one guild their handlers are dispatched one at a time in
+    // arrival order. Only the synchronous part is serialized: the REST and database callbacks a handler queues
+    // are not awaited, so their effects can still land out of order.
+    private static final Set<String> DISPATCH_ORDERED_COMMANDS = Set.of(
+            "warn", "setmuterole", "mute", "unmute", "timeout", "untimeout", "ban", "unban", "kick", "purge");
+
     private final DataService dataService;
     private final ConfigService configService;
     private final ModerationAnalytics analytics;
+    private final SchedulerService scheduler;
+
+    private final ExecutorService commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, CompletableFuture<Void>> dispatchTails = new ConcurrentHashMap<>();
+    private final Map<String, CommandTimings> timings = new ConcurrentHashMap<>();
+    private final LongAdder autoDeferred = new LongAdder();
+    private final LongAdder failures = new LongAdder();
 
     private final ModerationCommands moderationCommands;
     private final UtilityCommands utilityCommands;
 
-    public CommandManager(DataService dataService, ConfigService configService, ModerationAnalytics analytics) {
+    public CommandManager(DataService dataService, ConfigService configService, ModerationAnalytics analytics,
+                          ScheduledActionService scheduledActions, LoggingService loggingService,
+                          SchedulerService scheduler, EvidenceService evidenceService) {
         this.dataService = dataService;
         this.configService = configService;
         this.analytics = analytics;
+        this.scheduler = scheduler;
 
-        this.moderationCommands = new ModerationCommands(dataService, configService, analytics);
-        this.utilityCommands = new UtilityCommands(dataService, configService);
+        this.moderationCommands = new ModerationCommands(dataService, configService, analytics, scheduledActions,
+                loggingService, evidenceService);
+        this.utilityCommands = new UtilityCommands(dataService, configService, loggingService, analytics);
     }
 
+    // Handlers block on the database and REST calls, so each command gets its own virtual thread instead of
+    // holding up the JDA event thread.
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
+        long receivedAt = System.nanoTime();
+        ScheduledFuture<?> autoDefer = scheduler.schedule("command-auto-defer", () -> {
+            if (CommandReplies.deferIfPending(event)) {
+                autoDeferred.increment();
+                System.out.println("[CommandManager] Auto-deferred /" + event.getName() + " after " + AUTO_DEFER_MS + "ms");
+            }
+        }, AUTO_DEFER_MS, TimeUnit.MILLISECONDS);
+
+        Runnable task = () -> run(event, receivedAt, autoDefer);
+        try {
+            if (event.getGuild() != null && DISPATCH_ORDERED_COMMANDS.contains(event.getName())) {
+                submitInDispatchOrder(event.getGuild().getIdLong(), task);
+            } else {
+                commandExecutor.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            autoDefer.cancel(false);
+            CommandReplies.reply(event, "❌ The bot is shutting down, please try again shortly.");
+        }
+    }
+
+    private void submitInDispatchOrder(long guildId, Runnable task) {
+        CompletableFuture<Void> next = dispatchTails.compute(guildId, (id, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, commandExecutor)
+                : tail.handle((v, e) -> null).thenRunAsync(task, commandExecutor));
+        next.whenComplete((v, e) -> dispatchTails.remove(guildId, next));
+    }
+
+    private void run(SlashCommandInteractionEvent event, long receivedAt, ScheduledFuture<?> autoDefer) {
+        long startedAt = System.nanoTime();
+        try {
+            handle(event);
+        } catch (Exception e) {
+            failures.increment();
+            System.err.println("[CommandManager] ❌ /" + event.getName() + " failed: " + e.getMessage());
+            e.printStackTrace();
+            CommandReplies.reply(event, "❌ Something went wrong while running this command.");
+        } finally {
+            long finishedAt = System.nanoTime();
+            timings.computeIfAbsent(event.getName(), name -> new CommandTimings())
+                    .record(startedAt - receivedAt, finishedAt - startedAt);
+            // Handlers that answer from a REST callback may not have acknowledged yet; leave the timer for them.
+            if (event.isAcknowledged()) {
+                autoDefer.cancel(false);
+            }
+        }
+    }
+
+    private void handle(SlashCommandInteractionEvent event) {
         if (event.getName().equals("savesystem")) {
             String userId = event.getUser().getId();
             if (UtilityCommands.isUserAuthorized(userId)) {
                 utilityCommands.handleSaveSystem(event);
             } else {
-                event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+                CommandReplies.reply(event, "You don't have permission to use this command.");
             }
             return;
         }
@@ -78,7 +165,37 @@ public class CommandManager extends ListenerAdapter {
             case "exportdb":
                 utilityCommands.handleExportDb(event);
                 break;
+            case "reloadconfig":
+                utilityCommands.handleReloadConfig(event);
+                break;
+            case "modstats":
+                utilityCommands.handleModStats(event);
+                break;
+        }
+    }
+
+    public String getLatencyStats() {
+        StringBuilder stats = new StringBuilder(String.format(
+                "commands auto-deferred=%d, failed=%d, guilds with queued commands=%d",
+                autoDeferred.sum(), failures.sum(), dispatchTails.size()));
+        new TreeMap<>(timings).forEach((name, timing) -> stats.append("\n  /").append(name)
+                .append(" queue ").append(timing.queue.summary())
+                .append(" | exec ").append(timing.execution.summary()));
+        return stats.toString();
+    }
+
+    public void shutdown() {
+        commandExecutor.shutdown();
+        try {
+            if (!commandExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("[CommandManager] Commands still running after 10s, interrupting");
+                commandExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            commandExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
+        System.out.println("[CommandManager] " + getLatencyStats());
     }
 
     public void registerCommands(JDA jda) {
@@ -152,8 +269,36 @@ public class CommandManager extends ListenerAdapter {
                 .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR)));
 
         globalCommands.add(Commands.slash("exportdb", "Export modbot.db database (owner only)")
+                .addOptions(new OptionData(OptionType.STRING, "table", "What to export (default: whole database)", false)
+                        .addChoice("Whole database", "database")
+                        .addChoice("Warnings", "warnings")
+                        .addChoice("Moderation analytics", "moderation_analytics")
+                        .addChoice("Command logs", "command_logs"))
+                .addOptions(new OptionData(OptionType.STRING, "format", "Row format for table exports (default: CSV)", false)
+                        .addChoice("CSV", "csv")
+                        .addChoice("NDJSON", "ndjson"))
+                .addOption(OptionType.STRING, "from", "Table exports: first day to include (YYYY-MM-DD)", false)
+                .addOption(OptionType.STRING, "to", "Table exports: last day to include (YYYY-MM-DD)", false)
                 .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR)));
 
+        globalCommands.add(Commands.slash("reloadconfig", "Reload channel rules and roles from the config file")
+                .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR)));
+
+        globalCommands.add(Commands.slash("modstats", "Show moderation activity for this server")
+                .addOption(OptionType.INTEGER, "days", "How many days to include (default: 7)", false)
+                .setGuildOnly(true)
+                .setDefaultPermissions(DefaultMemberPermissions.ENABLED));
+
         return globalCommands;
     }
-}
\ No newline at end of file
+
+    private static final class CommandTimings {
+        private final LatencyHistogram queue = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+
+        void record(long queueNanos, long executionNanos) {
+            queue.record(queueNanos);
+            execution.record(executionNanos);
+        }
+    }
+}
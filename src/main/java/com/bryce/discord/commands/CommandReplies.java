@@ -0,0 +1,40 @@
+package com.bryce.discord.commands;
+
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+// Handlers reply through here so a reply still lands if CommandManager already auto-deferred the interaction.
+// Checking and acknowledging happen under the interaction's lock, which is also the lock JDA acknowledges under.
+public final class CommandReplies {
+
+    private CommandReplies() {
+    }
+
+    public static void reply(SlashCommandInteractionEvent event, String content) {
+        synchronized (event.getInteraction()) {
+            if (!event.isAcknowledged()) {
+                event.reply(content).setEphemeral(true).queue();
+                return;
+            }
+        }
+        event.getHook().editOriginal(content).queue();
+    }
+
+    public static void defer(SlashCommandInteractionEvent event) {
+        synchronized (event.getInteraction()) {
+            if (!event.isAcknowledged()) {
+                event.deferReply(true).queue();
+            }
+        }
+    }
+
+    // Returns true if this call deferred the interaction.
+    static boolean deferIfPending(SlashCommandInteractionEvent event) {
+        synchronized (event.getInteraction()) {
+            if (event.isAcknowledged()) {
+                return false;
+            }
+            event.deferReply(true).queue();
+            return true;
+        }
+    }
+}
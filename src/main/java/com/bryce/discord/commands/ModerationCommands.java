@@ -2,44 +2,88 @@ package com.bryce.discord.commands;
 
 import com.bryce.discord.analytics.ActionType;
 import com.bryce.discord.analytics.ModerationAnalytics;
+import com.bryce.discord.models.ScheduledAction;
 import com.bryce.discord.models.WarnRecord;
 import com.bryce.discord.services.ConfigService;
 import com.bryce.discord.services.DataService;
+import com.bryce.discord.services.EvidenceService;
 import com.bryce.discord.services.LoggingService;
+import com.bryce.discord.services.ScheduledActionService;
 import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.UserSnowflake;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
-import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.awt.Color;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class ModerationCommands {
     private final DataService dataService;
     private final ConfigService configService;
     private final LoggingService loggingService;
+    private final EvidenceService evidenceService;
     private final ModerationAnalytics analytics;
+    private final ScheduledActionService scheduledActions;
 
-    public ModerationCommands(DataService dataService, ConfigService configService, ModerationAnalytics analytics) {
+    public ModerationCommands(DataService dataService, ConfigService configService, ModerationAnalytics analytics,
+                              ScheduledActionService scheduledActions, LoggingService loggingService,
+                              EvidenceService evidenceService) {
         this.dataService = dataService;
         this.configService = configService;
-        this.loggingService = new LoggingService();
+        this.loggingService = loggingService;
+        this.evidenceService = evidenceService;
         this.analytics = analytics;
+        this.scheduledActions = scheduledActions;
+
+        scheduledActions.registerHandler(ActionType.UNMUTE, this::executeScheduledUnmute);
+    }
+
+    private CompletableFuture<?> executeScheduledUnmute(JDA jda, ScheduledAction action) {
+        Guild guild = jda.getGuildById(action.getGuildId());
+        if (guild == null) {
+            // An outage makes the guild unavailable for a while; only a guild the bot has left is gone for good.
+            if (jda.isUnavailable(action.getGuildId())) {
+                return CompletableFuture.failedFuture(new IllegalStateException("guild " + action.getGuildId() + " is unavailable"));
+            }
+            return CompletableFuture.failedFuture(new ScheduledActionService.PermanentFailure("bot is no longer in guild " + action.getGuildId()));
+        }
+        Role muteRole = guild.getRoleById(action.getRoleId());
+        if (muteRole == null) {
+            return CompletableFuture.failedFuture(new ScheduledActionService.PermanentFailure("mute role " + action.getRoleId() + " no longer exists"));
+        }
+
+        // Only the role removal decides success; a failed log message must not make the unmute run again.
+        return guild.removeRoleFromMember(UserSnowflake.fromId(action.getTargetId()), muteRole).submit()
+                .thenRun(() -> jda.retrieveUserById(action.getTargetId()).queue(targetUser -> {
+                    analytics.recordAction(guild, ActionType.UNMUTE, jda.getSelfUser(),
+                            targetUser, "Automatic unmute after timeout", 0, 0);
+
+                    EmbedBuilder unmuteEmbed = new EmbedBuilder()
+                            .setTitle("🔊 User Unmuted")
+                            .setDescription(String.format("**%s** has been automatically unmuted after %s minutes",
+                                    targetUser.getName(), action.getDurationMinutes()))
+                            .setColor(Color.GREEN)
+                            .setTimestamp(Instant.now())
+                            .setThumbnail(targetUser.getEffectiveAvatarUrl());
+
+                    loggingService.logModAction(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME, unmuteEmbed.build());
+                }, error -> System.err.println("[ModerationCommands] Unmuted " + action.getTargetId() +
+                        " but could not log it: " + error.getMessage())));
     }
 
     public void handleWarn(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
@@ -48,7 +92,7 @@ public class ModerationCommands {
         net.dv8tion.jda.api.entities.Message.Attachment evidence = event.getOption("evidence") != null ?
                 event.getOption("evidence").getAsAttachment() : null;
 
-        event.reply("Issuing warning...").setEphemeral(true).queue();
+        CommandReplies.reply(event, "Issuing warning...");
 
         event.getGuild().retrieveMemberById(targetUser.getId()).queue(targetMember -> {
             if (!configService.canModerate(event.getMember(), targetMember)) {
@@ -57,125 +101,125 @@ public class ModerationCommands {
             }
 
             WarnRecord warnRecord = new WarnRecord(
+                    event.getGuild().getIdLong(),
                     targetUser.getId(),
                     event.getUser().getId(),
                     reason,
                     System.currentTimeMillis()
             );
-            dataService.addWarning(warnRecord);
-            int currentWarnings = dataService.getWarningsForUser(targetUser.getId()).size();
+            dataService.addWarningAsync(warnRecord).whenComplete((currentWarnings, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to count warnings for " + targetUser.getId() + ": " + error.getMessage());
+                    event.getHook().editOriginal("⚠️ Warning recorded, but the warning count could not be loaded.").queue();
+                    return;
+                }
+                announceWarning(event, targetUser, reason, evidence, currentWarnings);
+            });
+        }, error -> {
+            event.getHook().editOriginal("❌ Error: Cannot find the user in this server.").queue();
+        });
+    }
 
-            analytics.recordAction(ActionType.WARN, event.getUser(), targetUser, reason, 0, currentWarnings);
+    private void announceWarning(SlashCommandInteractionEvent event, User targetUser, String reason,
+                                 net.dv8tion.jda.api.entities.Message.Attachment evidence, int currentWarnings) {
+        analytics.recordAction(event.getGuild(), ActionType.WARN, event.getUser(), targetUser, reason, 0, currentWarnings);
+
+        EmbedBuilder warnEmbed = new EmbedBuilder()
+                .setTitle("⚠️ Warning Issued")
+                .setDescription(String.format("A warning has been issued to **%s** (ID: %s)", targetUser.getName(), targetUser.getId()))
+                .addField("Reason", reason, false)
+                .addField("Total Warnings", String.valueOf(currentWarnings), true)
+                .addField("Moderator", String.format("%s (ID: %s)", event.getUser().getName(), event.getUser().getId()), true)
+                .setColor(Color.YELLOW)
+                .setTimestamp(Instant.now());
 
-            EmbedBuilder warnEmbed = new EmbedBuilder()
-                    .setTitle("⚠️ Warning Issued")
-                    .setDescription(String.format("A warning has been issued to **%s** (ID: %s)", targetUser.getName(), targetUser.getId()))
+        targetUser.openPrivateChannel().queue(channel -> {
+            EmbedBuilder userWarnEmbed = new EmbedBuilder()
+                    .setTitle("⚠️ You've Received a Warning")
+                    .setDescription(String.format("You have been warned in **%s**", event.getGuild().getName()))
                     .addField("Reason", reason, false)
-                    .addField("Total Warnings", String.valueOf(currentWarnings), true)
-                    .addField("Moderator", String.format("%s (ID: %s)", event.getUser().getName(), event.getUser().getId()), true)
                     .setColor(Color.YELLOW)
                     .setTimestamp(Instant.now());
+            channel.sendMessageEmbeds(userWarnEmbed.build()).queue(
+                    success -> {},
+                    error -> System.out.println("Could not DM user " + targetUser.getName() + " about their warning")
+            );
+        });
 
-            TextChannel logChannel = loggingService.getLogChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME);
+        event.getHook().editOriginal("Warning issued successfully.").queue();
 
-            targetUser.openPrivateChannel().queue(channel -> {
-                EmbedBuilder userWarnEmbed = new EmbedBuilder()
-                        .setTitle("⚠️ You've Received a Warning")
-                        .setDescription(String.format("You have been warned in **%s**", event.getGuild().getName()))
-                        .addField("Reason", reason, false)
-                        .setColor(Color.YELLOW)
-                        .setTimestamp(Instant.now());
-                channel.sendMessageEmbeds(userWarnEmbed.build()).queue(
-                        success -> {},
-                        error -> System.out.println("Could not DM user " + targetUser.getName() + " about their warning")
-                );
-            });
-
-            event.getHook().editOriginal("Warning issued successfully.").queue();
-
-            if (logChannel != null) {
-                if (evidence != null) {
-                    evidence.getProxy().download().thenAccept(data -> {
-                        FileUpload fileUpload = FileUpload.fromData(data, evidence.getFileName());
-                        warnEmbed.setThumbnail(targetUser.getEffectiveAvatarUrl());
-                        logChannel.sendMessageEmbeds(warnEmbed.build()).queue(message -> {
-                            logChannel.sendFiles(fileUpload).queue();
-                        });
-                    });
-                } else {
-                    warnEmbed.setThumbnail(targetUser.getEffectiveAvatarUrl());
-                    logChannel.sendMessageEmbeds(warnEmbed.build()).queue();
-                }
-            } else {
-                if (evidence != null) {
-                    evidence.getProxy().download().thenAccept(data -> {
-                        FileUpload fileUpload = FileUpload.fromData(data, evidence.getFileName());
-                        warnEmbed.setThumbnail(targetUser.getEffectiveAvatarUrl());
-                        event.getChannel().sendMessageEmbeds(warnEmbed.build()).queue(message -> {
-                            event.getChannel().sendFiles(fileUpload).queue();
-                        });
-                    });
-                } else {
-                    warnEmbed.setThumbnail(targetUser.getEffectiveAvatarUrl());
-                    event.getChannel().sendMessageEmbeds(warnEmbed.build()).queue();
-                }
-            }
-        }, error -> {
-            event.getHook().editOriginal("❌ Error: Cannot find the user in this server.").queue();
-        });
+        warnEmbed.setThumbnail(targetUser.getEffectiveAvatarUrl());
+        if (evidence == null) {
+            loggingService.logToChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), warnEmbed.build());
+            return;
+        }
+        loggingService.resolveLogChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME)
+                .thenCompose(logChannel -> evidenceService.sendWithEvidence(
+                        logChannel != null ? logChannel : event.getChannel(), warnEmbed, evidence))
+                .whenComplete((message, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to log warning for " + targetUser.getId() + ": " + error.getMessage());
+                    }
+                });
     }
 
     public void handleSetMuteRole(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasAdminPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
         Role muteRole = event.getOption("role").getAsRole();
 
         if (muteRole.isManaged()) {
-            event.reply("❌ Cannot use managed roles (bot or integration roles) for muting.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "❌ Cannot use managed roles (bot or integration roles) for muting.");
             return;
         }
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
-        dataService.setMuteRoleId(muteRole.getId());
+        dataService.setMuteRoleIdAsync(event.getGuild().getIdLong(), muteRole.getId()).whenComplete((saved, error) -> {
+            if (error != null) {
+                System.err.println("Failed to save mute role: " + error.getMessage());
+                event.getHook().sendMessage("❌ Could not save the mute role. Please try again.").queue();
+                return;
+            }
 
-        Guild guild = event.getGuild();
+            Guild guild = event.getGuild();
 
-        for (TextChannel channel : guild.getTextChannels()) {
-            channel.getPermissionContainer().upsertPermissionOverride(muteRole)
-                    .deny(net.dv8tion.jda.api.Permission.MESSAGE_SEND,
-                            net.dv8tion.jda.api.Permission.MESSAGE_SEND_IN_THREADS,
-                            net.dv8tion.jda.api.Permission.CREATE_PUBLIC_THREADS,
-                            net.dv8tion.jda.api.Permission.CREATE_PRIVATE_THREADS,
-                            net.dv8tion.jda.api.Permission.MESSAGE_ADD_REACTION)
-                    .queue();
-        }
+            for (TextChannel channel : guild.getTextChannels()) {
+                channel.getPermissionContainer().upsertPermissionOverride(muteRole)
+                        .deny(net.dv8tion.jda.api.Permission.MESSAGE_SEND,
+                                net.dv8tion.jda.api.Permission.MESSAGE_SEND_IN_THREADS,
+                                net.dv8tion.jda.api.Permission.CREATE_PUBLIC_THREADS,
+                                net.dv8tion.jda.api.Permission.CREATE_PRIVATE_THREADS,
+                                net.dv8tion.jda.api.Permission.MESSAGE_ADD_REACTION)
+                        .queue();
+            }
 
-        for (net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel channel : guild.getVoiceChannels()) {
-            channel.getPermissionContainer().upsertPermissionOverride(muteRole)
-                    .deny(net.dv8tion.jda.api.Permission.VOICE_SPEAK)
-                    .queue();
-        }
+            for (net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel channel : guild.getVoiceChannels()) {
+                channel.getPermissionContainer().upsertPermissionOverride(muteRole)
+                        .deny(net.dv8tion.jda.api.Permission.VOICE_SPEAK)
+                        .queue();
+            }
 
-        EmbedBuilder embed = new EmbedBuilder()
-                .setTitle("🔇 Mute Role Set")
-                .setDescription(String.format("Role **%s** will now be used for muting users.", muteRole.getName()))
-                .setColor(Color.GREEN)
-                .setTimestamp(Instant.now());
+            EmbedBuilder embed = new EmbedBuilder()
+                    .setTitle("🔇 Mute Role Set")
+                    .setDescription(String.format("Role **%s** will now be used for muting users.", muteRole.getName()))
+                    .setColor(Color.GREEN)
+                    .setTimestamp(Instant.now());
 
-        event.getHook().sendMessageEmbeds(embed.build()).queue();
+            event.getHook().sendMessageEmbeds(embed.build()).queue();
+        });
     }
 
     public void handleMute(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
@@ -184,15 +228,16 @@ public class ModerationCommands {
         Integer duration = event.getOption("duration") != null ?
                 event.getOption("duration").getAsInt() : null;
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
-        if (dataService.getMuteRoleId() == null) {
+        Guild guild = event.getGuild();
+        String muteRoleId = dataService.getMuteRoleId(guild.getIdLong());
+        if (muteRoleId == null) {
             event.getHook().sendMessage("❌ No mute role has been set. Please use `/setmuterole` first.").queue();
             return;
         }
 
-        Guild guild = event.getGuild();
-        Role muteRole = guild.getRoleById(dataService.getMuteRoleId());
+        Role muteRole = guild.getRoleById(muteRoleId);
 
         if (muteRole == null) {
             event.getHook().sendMessage("❌ The configured mute role no longer exists. Please use `/setmuterole` to set a new one.").queue();
@@ -216,7 +261,7 @@ public class ModerationCommands {
                         String durationText = duration != null ?
                                 duration + " minutes" : "Permanent";
 
-                        analytics.recordAction(ActionType.MUTE, event.getUser(), targetUser, reason,
+                        analytics.recordAction(event.getGuild(), ActionType.MUTE, event.getUser(), targetUser, reason,
                                 duration != null ? duration : 0, 0);
 
                         EmbedBuilder muteEmbed = new EmbedBuilder()
@@ -229,42 +274,17 @@ public class ModerationCommands {
                                 .setTimestamp(Instant.now())
                                 .setThumbnail(targetUser.getEffectiveAvatarUrl());
 
-                        TextChannel logChannel = loggingService.getLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                        if (logChannel != null) {
-                            logChannel.sendMessageEmbeds(muteEmbed.build()).queue();
-                        } else {
-                            event.getChannel().sendMessageEmbeds(muteEmbed.build()).queue();
-                        }
+                        loggingService.logToChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), muteEmbed.build());
 
                         event.getHook().sendMessage("User has been muted successfully.").queue();
 
                         if (duration != null) {
-                            Timer timer = new Timer();
-                            timer.schedule(new TimerTask() {
-                                @Override
-                                public void run() {
-                                    guild.removeRoleFromMember(targetMember, muteRole).queue(
-                                            unmuted -> {
-
-                                                analytics.recordAction(ActionType.UNMUTE, event.getJDA().getSelfUser(),
-                                                        targetUser, "Automatic unmute after timeout", 0, 0);
-
-                                                EmbedBuilder unmuteEmbed = new EmbedBuilder()
-                                                        .setTitle("🔊 User Unmuted")
-                                                        .setDescription(String.format("**%s** has been automatically unmuted after %s minutes",
-                                                                targetUser.getName(), duration))
-                                                        .setColor(Color.GREEN)
-                                                        .setTimestamp(Instant.now())
-                                                        .setThumbnail(targetUser.getEffectiveAvatarUrl());
-
-                                                TextChannel moderationLogChannel = loggingService.getLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                                                if (moderationLogChannel != null) {
-                                                    moderationLogChannel.sendMessageEmbeds(unmuteEmbed.build()).queue();
-                                                }
-                                            }
-                                    );
-                                }
-                            }, duration * 60 * 1000);
+                            scheduledActions.schedule(guild.getIdLong(), ActionType.UNMUTE, targetUser.getIdLong(),
+                                    muteRole.getIdLong(), duration * 60L * 1000L).exceptionally(error -> {
+                                System.err.println("Failed to schedule automatic unmute for " + targetUser.getId() + ": " + error.getMessage());
+                                event.getHook().sendMessage("⚠️ The automatic unmute could not be scheduled, please unmute manually.").queue();
+                                return null;
+                            });
                         }
                     },
                     error -> {
@@ -277,25 +297,26 @@ public class ModerationCommands {
     }
 
     public void handleUnmute(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
         User targetUser = event.getOption("user").getAsUser();
         String reason = event.getOption("reason").getAsString();
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
-        if (dataService.getMuteRoleId() == null) {
+        Guild guild = event.getGuild();
+        String muteRoleId = dataService.getMuteRoleId(guild.getIdLong());
+        if (muteRoleId == null) {
             event.getHook().sendMessage("❌ No mute role has been set. Please use `/setmuterole` first.").queue();
             return;
         }
 
-        Guild guild = event.getGuild();
-        Role muteRole = guild.getRoleById(dataService.getMuteRoleId());
+        Role muteRole = guild.getRoleById(muteRoleId);
 
         if (muteRole == null) {
             event.getHook().sendMessage("❌ The configured mute role no longer exists. Please use `/setmuterole` to set a new one.").queue();
@@ -321,8 +342,9 @@ public class ModerationCommands {
 
             guild.removeRoleFromMember(targetMember, muteRole).queue(
                     success -> {
+                        scheduledActions.cancel(guild.getIdLong(), targetUser.getIdLong(), ActionType.UNMUTE);
 
-                        analytics.recordAction(ActionType.UNMUTE, event.getUser(), targetUser, reason, 0, 0);
+                        analytics.recordAction(event.getGuild(), ActionType.UNMUTE, event.getUser(), targetUser, reason, 0, 0);
 
                         EmbedBuilder unmuteEmbed = new EmbedBuilder()
                                 .setTitle("🔊 User Unmuted")
@@ -333,12 +355,7 @@ public class ModerationCommands {
                                 .setTimestamp(Instant.now())
                                 .setThumbnail(targetUser.getEffectiveAvatarUrl());
 
-                        TextChannel logChannel = loggingService.getLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                        if (logChannel != null) {
-                            logChannel.sendMessageEmbeds(unmuteEmbed.build()).queue();
-                        } else {
-                            event.getChannel().sendMessageEmbeds(unmuteEmbed.build()).queue();
-                        }
+                        loggingService.logToChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), unmuteEmbed.build());
 
                         event.getHook().sendMessage("User has been unmuted successfully.").queue();
                     },
@@ -352,10 +369,10 @@ public class ModerationCommands {
     }
 
     public void handleTimeout(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
@@ -368,7 +385,7 @@ public class ModerationCommands {
             duration = 40320;
         }
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         final int finalDuration = duration;
 
@@ -387,7 +404,7 @@ public class ModerationCommands {
             targetMember.timeoutFor(java.time.Duration.ofMinutes(finalDuration)).reason(reason).queue(
                     success -> {
 
-                        analytics.recordAction(ActionType.TIMEOUT, event.getUser(), targetUser, reason, finalDuration, 0);
+                        analytics.recordAction(event.getGuild(), ActionType.TIMEOUT, event.getUser(), targetUser, reason, finalDuration, 0);
 
                         EmbedBuilder timeoutEmbed = new EmbedBuilder()
                                 .setTitle("⏰ User Timed Out")
@@ -399,12 +416,7 @@ public class ModerationCommands {
                                 .setTimestamp(Instant.now())
                                 .setThumbnail(targetUser.getEffectiveAvatarUrl());
 
-                        TextChannel logChannel = loggingService.getLogChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                        if (logChannel != null) {
-                            logChannel.sendMessageEmbeds(timeoutEmbed.build()).queue();
-                        } else {
-                            event.getChannel().sendMessageEmbeds(timeoutEmbed.build()).queue();
-                        }
+                        loggingService.logToChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), timeoutEmbed.build());
 
                         event.getHook().sendMessage("User has been timed out successfully.").queue();
                     },
@@ -418,17 +430,17 @@ public class ModerationCommands {
     }
 
     public void handleUntimeout(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
         User targetUser = event.getOption("user").getAsUser();
         String reason = event.getOption("reason").getAsString();
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         event.getGuild().retrieveMemberById(targetUser.getId()).queue(targetMember -> {
 
@@ -450,7 +462,7 @@ public class ModerationCommands {
             targetMember.removeTimeout().reason(reason).queue(
                     success -> {
 
-                        analytics.recordAction(ActionType.UNTIMEOUT, event.getUser(), targetUser, reason, 0, 0);
+                        analytics.recordAction(event.getGuild(), ActionType.UNTIMEOUT, event.getUser(), targetUser, reason, 0, 0);
 
                         EmbedBuilder untimeoutEmbed = new EmbedBuilder()
                                 .setTitle("⏰ Timeout Removed")
@@ -461,12 +473,7 @@ public class ModerationCommands {
                                 .setTimestamp(Instant.now())
                                 .setThumbnail(targetUser.getEffectiveAvatarUrl());
 
-                        TextChannel logChannel = loggingService.getLogChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                        if (logChannel != null) {
-                            logChannel.sendMessageEmbeds(untimeoutEmbed.build()).queue();
-                        } else {
-                            event.getChannel().sendMessageEmbeds(untimeoutEmbed.build()).queue();
-                        }
+                        loggingService.logToChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), untimeoutEmbed.build());
 
                         event.getHook().sendMessage("User's timeout has been removed successfully.").queue();
                     },
@@ -480,10 +487,10 @@ public class ModerationCommands {
     }
 
     public void handleBan(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
@@ -493,11 +500,11 @@ public class ModerationCommands {
                 event.getOption("delete_days").getAsInt() : 1;
 
         if (deleteDays < 0 || deleteDays > 7) {
-            event.reply("Error: delete_days must be between 0 and 7").setEphemeral(true).queue();
+            CommandReplies.reply(event, "Error: delete_days must be between 0 and 7");
             return;
         }
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         String userName = targetUser.getName();
         String userAvatar = targetUser.getEffectiveAvatarUrl();
@@ -529,7 +536,7 @@ public class ModerationCommands {
                 .queue(
                         success -> {
 
-                            analytics.recordAction(ActionType.BAN, event.getUser(), targetUser, reason, deleteDays, 0);
+                            analytics.recordAction(event.getGuild(), ActionType.BAN, event.getUser(), targetUser, reason, deleteDays, 0);
 
                             EmbedBuilder banEmbed = new EmbedBuilder()
                                     .setTitle("🔨 User Banned")
@@ -541,12 +548,7 @@ public class ModerationCommands {
                                     .setTimestamp(Instant.now())
                                     .setThumbnail(userAvatar);
 
-                            TextChannel logChannel = loggingService.getLogChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                            if (logChannel != null) {
-                                logChannel.sendMessageEmbeds(banEmbed.build()).queue();
-                            } else {
-                                event.getChannel().sendMessageEmbeds(banEmbed.build()).queue();
-                            }
+                            loggingService.logToChannel(event.getGuild(), ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), banEmbed.build());
 
                             event.getHook().sendMessage("User has been banned successfully.").queue();
                         },
@@ -557,17 +559,17 @@ public class ModerationCommands {
     }
 
     public void handleKick(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
         User targetUser = event.getOption("user").getAsUser();
         String reason = event.getOption("reason").getAsString();
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         Guild guild = event.getGuild();
 
@@ -616,7 +618,7 @@ public class ModerationCommands {
 
         guild.kick(targetMember).reason(reason).queue(
                 success -> {
-                    analytics.recordAction(ActionType.KICK, event.getUser(), targetUser, reason, 0, 0);
+                    analytics.recordAction(event.getGuild(), ActionType.KICK, event.getUser(), targetUser, reason, 0, 0);
 
                     EmbedBuilder kickEmbed = new EmbedBuilder()
                             .setTitle("👢 User Kicked")
@@ -627,12 +629,7 @@ public class ModerationCommands {
                             .setTimestamp(Instant.now())
                             .setThumbnail(userAvatar);
 
-                    TextChannel logChannel = loggingService.getLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                    if (logChannel != null) {
-                        logChannel.sendMessageEmbeds(kickEmbed.build()).queue();
-                    } else {
-                        event.getChannel().sendMessageEmbeds(kickEmbed.build()).queue();
-                    }
+                    loggingService.logToChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), kickEmbed.build());
 
                     event.getHook().sendMessage("✅ User **" + userName + "** has been kicked successfully.").queue();
                 },
@@ -643,17 +640,17 @@ public class ModerationCommands {
     }
 
     public void handleUnban(SlashCommandInteractionEvent event) {
-        dataService.saveCommandLog(event.getUser().getId(), event.getUser().getName(), event.getName());
+        dataService.saveCommandLog(event.getGuild(), event.getUser().getId(), event.getUser().getName(), event.getName());
 
         if (!configService.hasModeratorPermissions(event.getMember())) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
 
         String userId = event.getOption("user_id").getAsString();
         String reason = event.getOption("reason").getAsString();
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         if (!userId.matches("\\d{17,19}")) {
             event.getHook().sendMessage("❌ Invalid user ID format. Please provide a valid Discord user ID.").queue();
@@ -689,7 +686,7 @@ public class ModerationCommands {
             guild.unban(bannedUser).reason(reason).queue(
                     success -> {
 
-                        analytics.recordAction(ActionType.UNBAN, event.getUser(), bannedUser, reason, 0, 0);
+                        analytics.recordAction(event.getGuild(), ActionType.UNBAN, event.getUser(), bannedUser, reason, 0, 0);
 
                         EmbedBuilder unbanEmbed = new EmbedBuilder()
                                 .setTitle("🔓 User Unbanned")
@@ -700,12 +697,7 @@ public class ModerationCommands {
                                 .setTimestamp(Instant.now())
                                 .setThumbnail(userAvatar);
 
-                        TextChannel logChannel = loggingService.getLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME);
-                        if (logChannel != null) {
-                            logChannel.sendMessageEmbeds(unbanEmbed.build()).queue();
-                        } else {
-                            event.getChannel().sendMessageEmbeds(unbanEmbed.build()).queue();
-                        }
+                        loggingService.logToChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME, event.getChannel(), unbanEmbed.build());
 
                         event.getHook().sendMessage("✅ User **" + userName + "** has been unbanned successfully.").queue();
                     },
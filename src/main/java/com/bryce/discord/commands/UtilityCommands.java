@@ -1,8 +1,13 @@
 package com.bryce.discord.commands;
 
+import com.bryce.discord.analytics.ActionType;
+import com.bryce.discord.analytics.ModerationAnalytics;
 import com.bryce.discord.services.ConfigService;
+import com.bryce.discord.services.ConfigSnapshot;
 import com.bryce.discord.services.DataService;
+import com.bryce.discord.services.ExportService;
 import com.bryce.discord.services.LoggingService;
+import com.bryce.discord.utils.FormatUtils;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.Message;
@@ -11,11 +16,16 @@ import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEve
 import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.awt.Color;
-import java.io.File;
+import java.nio.file.Path;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -23,13 +33,22 @@ public class UtilityCommands {
     private final DataService dataService;
     private final ConfigService configService;
     private final LoggingService loggingService;
+    private final ModerationAnalytics analytics;
+    private final ExportService exportService;
 
     private static final String[] AUTHORIZED_USER_IDS = {"529480987525251082", "689519709988585648"};
+    private static final long DEFAULT_UPLOAD_LIMIT = 10L * 1024 * 1024;
+    private static final long UPLOAD_HEADROOM = 512L * 1024;
+    private static final int STATS_DEFAULT_DAYS = 7;
+    private static final int STATS_TOP_LIMIT = 5;
 
-    public UtilityCommands(DataService dataService, ConfigService configService) {
+    public UtilityCommands(DataService dataService, ConfigService configService, LoggingService loggingService,
+                           ModerationAnalytics analytics) {
         this.dataService = dataService;
         this.configService = configService;
-        this.loggingService = new LoggingService();
+        this.loggingService = loggingService;
+        this.analytics = analytics;
+        this.exportService = new ExportService();
     }
 
     public void handlePurge(SlashCommandInteractionEvent event) {
@@ -37,13 +56,13 @@ public class UtilityCommands {
         User targetUser = event.getOption("user") != null ? event.getOption("user").getAsUser() : null;
 
         if (amount < 1 || amount > 100) {
-            event.reply("Please provide a number between 1 and 100.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "Please provide a number between 1 and 100.");
             return;
         }
 
         TextChannel channel = event.getChannel().asTextChannel();
 
-        event.deferReply(true).queue();
+        CommandReplies.defer(event);
 
         channel.getHistory().retrievePast(amount).queue(messages -> {
             List<Message> messagesToDelete;
@@ -81,12 +100,7 @@ public class UtilityCommands {
 
             event.getHook().sendMessage("Successfully deleted " + messagesToDelete.size() + " messages.").queue();
 
-            TextChannel logChannel = loggingService.getLogChannel(event.getGuild(), ConfigService.PURGE_LOG_CHANNEL_NAME);
-            if (logChannel != null) {
-                logChannel.sendMessageEmbeds(purgeEmbed.build()).queue();
-            } else {
-                event.getChannel().sendMessageEmbeds(purgeEmbed.build()).queue();
-            }
+            loggingService.logToChannel(event.getGuild(), ConfigService.PURGE_LOG_CHANNEL_NAME, event.getChannel(), purgeEmbed.build());
         });
     }
 
@@ -101,10 +115,10 @@ public class UtilityCommands {
             }
         }
         if (!isAuthorized) {
-            event.reply("You don't have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "You don't have permission to use this command.");
             return;
         }
-        event.reply("💾 Starting save operation...").setEphemeral(true).queue();
+        CommandReplies.reply(event, "💾 Starting save operation...");
         System.out.println("Manual save triggered by " + event.getUser().getName() + " (ID: " + userId + ")");
         try {
             dataService.saveAllData();
@@ -124,6 +138,67 @@ public class UtilityCommands {
             );
         }
     }
+    public void handleModStats(SlashCommandInteractionEvent event) {
+        if (!configService.hasModeratorPermissions(event.getMember())) {
+            CommandReplies.reply(event, "You don't have permission to use this command.");
+            return;
+        }
+
+        int days = event.getOption("days") != null ? event.getOption("days").getAsInt() : STATS_DEFAULT_DAYS;
+        if (days < 1 || days > 365) {
+            CommandReplies.reply(event, "Please provide a number of days between 1 and 365.");
+            return;
+        }
+
+        // The first query may wait for the analytics warm-up, so acknowledge before running them.
+        CommandReplies.defer(event);
+
+        long guildId = event.getGuild().getIdLong();
+        Map<ActionType, Integer> byType = analytics.getActionCountsByType(guildId, days);
+        Map<String, Integer> topModerators = analytics.getTopModerators(guildId, days, STATS_TOP_LIMIT);
+        Map<String, Integer> topTargets = analytics.getTopModeratedUsers(guildId, days, STATS_TOP_LIMIT);
+
+        EmbedBuilder embed = new EmbedBuilder()
+                .setTitle("📊 Moderation Stats")
+                .setDescription("Last " + days + (days == 1 ? " day" : " days") + " in **" + event.getGuild().getName() + "**")
+                .addField("Actions", formatCounts(byType), false)
+                .addField("Top Moderators", formatCounts(topModerators), true)
+                .addField("Most Moderated Users", formatCounts(topTargets), true)
+                .setColor(Color.BLUE)
+                .setTimestamp(Instant.now());
+        if (analytics.isPartial()) {
+            embed.setFooter("⚠️ Older history is still loading (" + analytics.getWarmUpLoadedCount() +
+                    " actions so far), counts may be incomplete");
+        }
+
+        event.getHook().sendMessageEmbeds(embed.build()).queue();
+    }
+
+    private static String formatCounts(Map<?, Integer> counts) {
+        if (counts.isEmpty()) {
+            return "None";
+        }
+        return counts.entrySet().stream()
+                .map(entry -> "**" + entry.getValue() + "** × " + entry.getKey())
+                .collect(Collectors.joining("\n"));
+    }
+
+    public void handleReloadConfig(SlashCommandInteractionEvent event) {
+        if (!configService.hasAdminPermissions(event.getMember())) {
+            CommandReplies.reply(event, "You don't have permission to use this command.");
+            return;
+        }
+
+        System.out.println("Config reload triggered by " + event.getUser().getName() + " (ID: " + event.getUser().getId() + ")");
+        try {
+            ConfigSnapshot config = configService.reload();
+            CommandReplies.reply(event, "✅ Configuration reloaded: " + config.describe());
+        } catch (Exception e) {
+            System.err.println("Error reloading configuration: " + e.getMessage());
+            CommandReplies.reply(event, "❌ Configuration not reloaded, previous rules are still active: " + e.getMessage());
+        }
+    }
+
     public void handleExportDb(SlashCommandInteractionEvent event) {
         List<String> allowedUserIds = List.of(
                 "529480987525251082",
@@ -131,20 +206,79 @@ public class UtilityCommands {
         );
 
         if (!allowedUserIds.contains(event.getUser().getId())) {
-            event.reply("❌ You do not have permission to use this command.").setEphemeral(true).queue();
+            CommandReplies.reply(event, "❌ You do not have permission to use this command.");
             return;
         }
 
-        File dbFile = new File("modbot.db");
+        String table = event.getOption("table") != null ? event.getOption("table").getAsString() : "database";
+        if (!table.equals("database") && !ExportService.isExportableTable(table)) {
+            CommandReplies.reply(event, "❌ Unknown table: " + table);
+            return;
+        }
+        if (!table.equals("database") && !event.isFromGuild()) {
+            CommandReplies.reply(event, "❌ Table exports must be run in a server.");
+            return;
+        }
 
-        if (!dbFile.exists()) {
-            event.reply("❌ modbot.db not found!").setEphemeral(true).queue();
+        long fromTimestamp;
+        long toTimestamp;
+        try {
+            fromTimestamp = event.getOption("from") != null
+                    ? LocalDate.parse(event.getOption("from").getAsString()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : 0L;
+            toTimestamp = event.getOption("to") != null
+                    ? LocalDate.parse(event.getOption("to").getAsString()).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : Long.MAX_VALUE;
+        } catch (DateTimeParseException e) {
+            CommandReplies.reply(event, "❌ Dates must be in YYYY-MM-DD format.");
             return;
         }
 
-        event.reply("📤 Exporting modbot.db...").setEphemeral(true)
-                .addFiles(FileUpload.fromData(dbFile, "modbot.db"))
-                .queue();
+        ExportService.Format format = event.getOption("format") != null &&
+                event.getOption("format").getAsString().equals("ndjson") ? ExportService.Format.NDJSON : ExportService.Format.CSV;
+
+        // Leave headroom under the upload limit for the multipart envelope.
+        long uploadLimit = event.isFromGuild() ? event.getGuild().getMaxFileSize() : DEFAULT_UPLOAD_LIMIT;
+        long partSize = Math.max(1024 * 1024, uploadLimit - UPLOAD_HEADROOM);
+
+        CommandReplies.defer(event);
+
+        CompletableFuture<ExportService.ExportResult> export = table.equals("database")
+                ? exportService.exportDatabase(partSize)
+                : exportService.exportTable(event.getGuild().getIdLong(), table, format, fromTimestamp, toTimestamp, partSize);
+
+        export.whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("[UtilityCommands] Export failed: " + cause.getMessage());
+                event.getHook().sendMessage("❌ Export failed: " + cause.getMessage()).queue();
+                return;
+            }
+
+            List<Path> parts = result.getParts();
+            String summary = String.format("📤 Exported %s: %s%s compressed to %s in %dms%s",
+                    table.equals("database") ? "modbot.db" : table,
+                    result.getRows() >= 0 ? result.getRows() + " rows, " : "",
+                    FormatUtils.formatBytes(result.getUncompressedSize()),
+                    FormatUtils.formatBytes(result.getCompressedBytes()),
+                    result.getElapsedMs(),
+                    parts.size() > 1 ? " (" + parts.size() + " parts, concatenate them in order before decompressing)" : "");
+
+            List<CompletableFuture<?>> uploads = new ArrayList<>();
+            for (int i = 0; i < parts.size(); i++) {
+                Path part = parts.get(i);
+                String content = i == 0 ? summary : "Part " + (i + 1) + "/" + parts.size();
+                uploads.add(event.getHook().sendMessage(content)
+                        .addFiles(FileUpload.fromData(part.toFile(), part.getFileName().toString()))
+                        .submit());
+            }
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, uploadError) -> {
+                if (uploadError != null) {
+                    System.err.println("[UtilityCommands] Export upload failed: " + uploadError.getMessage());
+                }
+                exportService.cleanup(result);
+            });
+        });
     }
 
     public static boolean isUserAuthorized(String userId) {
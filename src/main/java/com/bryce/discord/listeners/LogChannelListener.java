@@ -0,0 +1,46 @@
+package com.bryce.discord.listeners;
+
+import com.bryce.discord.services.LoggingService;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+public class LogChannelListener extends ListenerAdapter {
+
+    private final LoggingService loggingService;
+
+    public LogChannelListener(LoggingService loggingService) {
+        this.loggingService = loggingService;
+    }
+
+    @Override
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        if (event.isFromGuild() && event.getChannelType() == ChannelType.TEXT) {
+            loggingService.invalidateLogChannel(event.getGuild().getIdLong(), event.getChannel().getIdLong());
+        }
+    }
+
+    // Log channels are found by name, so a rename means the cached id may no longer be the right channel.
+    @Override
+    public void onChannelUpdateName(ChannelUpdateNameEvent event) {
+        if (event.isFromGuild() && event.getChannelType() == ChannelType.TEXT) {
+            loggingService.invalidateLogChannel(event.getGuild().getIdLong(), event.getChannel().getIdLong());
+        }
+    }
+
+    // The bot may have just been granted Manage Channels, so forget any cached "cannot create" result.
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        if (event.getGuild().getSelfMember().getRoles().contains(event.getRole()) || event.getRole().isPublicRole()) {
+            loggingService.invalidateGuild(event.getGuild().getIdLong());
+        }
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        loggingService.invalidateGuild(event.getGuild().getIdLong());
+    }
+}
@@ -2,26 +2,30 @@ package com.bryce.discord.listeners;
 
 import com.bryce.discord.analytics.ActionType;
 import com.bryce.discord.analytics.ModerationAnalytics;
+import com.bryce.discord.services.ChannelRuleTable;
 import com.bryce.discord.services.ConfigService;
 import com.bryce.discord.services.DataService;
 import com.bryce.discord.services.LoggingService;
+import com.bryce.discord.services.MessageDeleteBatcher;
+import com.bryce.discord.utils.ContentClassifier;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
-import java.util.Arrays;
-
 public class MessageListener extends ListenerAdapter {
     private final DataService dataService;
     private final ConfigService configService;
     private final LoggingService loggingService;
+    private final MessageDeleteBatcher deleteBatcher;
     private final ModerationAnalytics analytics;
 
-    public MessageListener(DataService dataService, ConfigService configService, ModerationAnalytics analytics) {
+    public MessageListener(DataService dataService, ConfigService configService, ModerationAnalytics analytics,
+                           LoggingService loggingService, MessageDeleteBatcher deleteBatcher) {
         this.dataService = dataService;
         this.configService = configService;
-        this.loggingService = new LoggingService();
+        this.loggingService = loggingService;
+        this.deleteBatcher = deleteBatcher;
         this.analytics = analytics;
     }
 
@@ -29,99 +33,97 @@ public class MessageListener extends ListenerAdapter {
     public void onMessageReceived(MessageReceivedEvent event) {
         if (event.getAuthor().isBot()) return;
 
+        // Most channels have no rules, so bail out before the permission check and content scan.
+        int channelRules = configService.getChannelRules(event.getChannel().getIdLong());
+        if (channelRules == 0) return;
+
         Member member = event.getMember();
         if (member != null && configService.hasAdminPermissions(member)) {
             return;
         }
 
-        String channelId = event.getChannel().getId();
         Message message = event.getMessage();
+        int content = ContentClassifier.classify(message);
 
-        if (configService.getMediaOnlyChannels().contains(channelId)) {
-            boolean hasMedia = !message.getAttachments().isEmpty() || containsLinks(message.getContentRaw());
-            boolean hasOnlyMedia = message.getContentRaw().trim().isEmpty() || containsOnlyLinks(message.getContentRaw());
+        if (ChannelRuleTable.hasRule(channelRules, ChannelRuleTable.MEDIA_ONLY)) {
+            boolean hasMedia = ContentClassifier.hasAny(content, ContentClassifier.HAS_ATTACHMENT | ContentClassifier.HAS_LINK);
+            boolean hasOnlyMedia = !ContentClassifier.hasAny(content, ContentClassifier.HAS_TEXT);
 
             if (!hasMedia || !hasOnlyMedia) {
-                message.delete().queue();
-                loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                        "Only images and links are allowed in this channel (no regular chat messages).", null);
+                deleteBatcher.delete(message);
+                loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                        "Only images and links are allowed in this channel (no regular chat messages).");
 
-                analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+                analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                         "Deleted message in Media-Only Channel", 0, 0);
+                loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted message in Media-Only Channel");
 
                 return;
             }
             return;
         }
 
-        if (configService.getScreenshotOnlyChannels().contains(channelId)) {
-            if (message.getAttachments().isEmpty() || !message.getContentRaw().isEmpty()) {
-                message.delete().queue();
-                loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                        "Only images/screenshots are allowed in this channel (no text).", null);
+        if (ChannelRuleTable.hasRule(channelRules, ChannelRuleTable.SCREENSHOT_ONLY)) {
+            if (!ContentClassifier.hasAny(content, ContentClassifier.HAS_ATTACHMENT) ||
+                    ContentClassifier.hasAny(content, ContentClassifier.HAS_CONTENT)) {
+                deleteBatcher.delete(message);
+                loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                        "Only images/screenshots are allowed in this channel (no text).");
 
-                analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+                analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                         "Deleted message in Screenshot-Only Channel", 0, 0);
+                loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted message in Screenshot-Only Channel");
 
                 return;
             }
-            if (message.getAttachments().stream().anyMatch(attachment ->
-                    !attachment.isImage())) {
-                message.delete().queue();
-                loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                        "Only images/screenshots are allowed in this channel.", null);
+            if (ContentClassifier.hasAny(content, ContentClassifier.HAS_VIDEO | ContentClassifier.HAS_FILE)) {
+                deleteBatcher.delete(message);
+                loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                        "Only images/screenshots are allowed in this channel.");
 
-                analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+                analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                         "Deleted non-image attachment in Screenshot-Only Channel", 0, 0);
+                loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted non-image attachment in Screenshot-Only Channel");
 
                 return;
             }
             return;
         }
 
-        if (configService.getNoMessageChannels().contains(channelId)) {
-            message.delete().queue();
-            loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                    "Messages are not allowed in this channel.", null);
+        if (ChannelRuleTable.hasRule(channelRules, ChannelRuleTable.NO_MESSAGE)) {
+            deleteBatcher.delete(message);
+            loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                    "Messages are not allowed in this channel.");
 
-            analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+            analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                     "Deleted message in No-Message Channel", 0, 0);
+            loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted message in No-Message Channel");
 
             return;
         }
 
-        if (configService.getNoMediaChannels().contains(channelId)) {
-            if (!message.getAttachments().isEmpty() || containsLinks(message.getContentRaw())) {
-                message.delete().queue();
-                loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                        "Media and links are not allowed in this channel.", null);
+        if (ChannelRuleTable.hasRule(channelRules, ChannelRuleTable.NO_MEDIA)) {
+            if (ContentClassifier.hasAny(content, ContentClassifier.HAS_ATTACHMENT | ContentClassifier.HAS_LINK)) {
+                deleteBatcher.delete(message);
+                loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                        "Media and links are not allowed in this channel.");
 
-                analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+                analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                         "Deleted media/link in No-Media Channel", 0, 0);
+                loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted media/link in No-Media Channel");
 
                 return;
             }
         }
 
-        if (configService.getNoContentChannels().contains(channelId)) {
-            message.delete().queue();
-            loggingService.sendWarningEmbed(event.getChannel().asTextChannel(),
-                    "No content is allowed in this channel.", null);
+        if (ChannelRuleTable.hasRule(channelRules, ChannelRuleTable.NO_CONTENT)) {
+            deleteBatcher.delete(message);
+            loggingService.sendViolationNotice(event.getChannel().asTextChannel(), event.getAuthor(),
+                    "No content is allowed in this channel.");
 
-            analytics.recordAction(ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
+            analytics.recordAction(event.getGuild(), ActionType.MESSAGE_DELETE, event.getJDA().getSelfUser(), event.getAuthor(),
                     "Deleted message in No-Content Channel", 0, 0);
+            loggingService.logAutoDelete(event.getGuild(), event.getAuthor(), event.getChannel(), "Deleted message in No-Content Channel");
         }
     }
-
-    private boolean containsLinks(String content) {
-        return content.matches(".*https?://\\S+.*");
-    }
-
-    private boolean containsOnlyLinks(String content) {
-        String[] words = content.trim().split("\\s+");
-
-        return Arrays.stream(words)
-                .filter(word -> !word.isEmpty())
-                .allMatch(word -> word.matches("https?://\\S+.*"));
-    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.bryce.discord.listeners;
+
+import com.bryce.discord.services.ConfigService;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+public class PermissionCacheListener extends ListenerAdapter {
+
+    private final ConfigService configService;
+
+    public PermissionCacheListener(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        configService.clearPermissionCache(event.getGuild().getIdLong(), event.getMember().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        configService.clearPermissionCache(event.getGuild().getIdLong(), event.getMember().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
+        configService.clearPermissionCache(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    // A role's permissions affect every member holding it, so drop the whole guild.
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        configService.clearGuildPermissionCache(event.getGuild().getIdLong());
+        System.out.println("[PermissionCacheListener] Role " + event.getRole().getName() + " permissions changed, cleared cached permissions for " + event.getGuild().getName());
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        configService.clearGuildPermissionCache(event.getGuild().getIdLong());
+    }
+}
@@ -0,0 +1,37 @@
+package com.bryce.discord.models;
+
+import java.util.List;
+
+public class BackupManifest {
+    private final long createdAt;
+    private final long size;
+    private final int chunkSize;
+    private final List<String> chunks;
+
+    public BackupManifest(long createdAt, long size, int chunkSize, List<String> chunks) {
+        this.createdAt = createdAt;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunks = List.copyOf(chunks);
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public List<String> getChunks() {
+        return chunks;
+    }
+
+    public boolean hasSameContent(BackupManifest other) {
+        return other != null && size == other.size && chunkSize == other.chunkSize && chunks.equals(other.chunks);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bryce.discord.models;
+
+public class GuildSettings {
+    public static final String MUTE_ROLE_KEY = "muteRoleId";
+
+    public static final GuildSettings DEFAULTS = new GuildSettings(0L, null);
+
+    private final long guildId;
+    private final String muteRoleId;
+
+    public GuildSettings(long guildId, String muteRoleId) {
+        this.guildId = guildId;
+        this.muteRoleId = muteRoleId;
+    }
+
+    public long getGuildId() {
+        return guildId;
+    }
+
+    public String getMuteRoleId() {
+        return muteRoleId;
+    }
+
+    public GuildSettings withValue(String key, String value) {
+        if (MUTE_ROLE_KEY.equals(key)) {
+            return new GuildSettings(guildId, value);
+        }
+        return this;
+    }
+}
\ No newline at end of file
@@ -12,6 +12,7 @@ import java.time.format.DateTimeFormatter;
 public class ModAction implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private final long guildId;
     private final ActionType actionType;
     private final String moderatorId;
     private final String moderatorName;
@@ -25,6 +26,13 @@ public class ModAction implements Serializable {
     public ModAction(ActionType actionType, String moderatorId, String moderatorName,
                      String targetId, String targetName, String reason,
                      long timestamp, int duration, int count) {
+        this(0L, actionType, moderatorId, moderatorName, targetId, targetName, reason, timestamp, duration, count);
+    }
+
+    public ModAction(long guildId, ActionType actionType, String moderatorId, String moderatorName,
+                     String targetId, String targetName, String reason,
+                     long timestamp, int duration, int count) {
+        this.guildId = guildId;
         this.actionType = actionType;
         this.moderatorId = moderatorId;
         this.moderatorName = moderatorName;
@@ -36,6 +44,7 @@ public class ModAction implements Serializable {
         this.count = count;
     }
 
+    public long getGuildId() { return guildId; }
     public ActionType getActionType() { return actionType; }
     public String getModeratorId() { return moderatorId; }
     public String getModeratorName() { return moderatorName; }
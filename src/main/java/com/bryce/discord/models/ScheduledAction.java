@@ -0,0 +1,93 @@
+package com.bryce.discord.models;
+
+import com.bryce.discord.analytics.ActionType;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Only ids are kept so a pending action never pins JDA entities or interaction events in memory.
+public class ScheduledAction implements Delayed {
+    private final long id;
+    private final long guildId;
+    private final ActionType actionType;
+    private final long targetId;
+    private final long roleId;
+    private final long createdAt;
+    private final long executeAt;
+    private final int attempts;
+
+    public ScheduledAction(long id, long guildId, ActionType actionType, long targetId, long roleId,
+                           long createdAt, long executeAt) {
+        this(id, guildId, actionType, targetId, roleId, createdAt, executeAt, 0);
+    }
+
+    private ScheduledAction(long id, long guildId, ActionType actionType, long targetId, long roleId,
+                            long createdAt, long executeAt, int attempts) {
+        this.id = id;
+        this.guildId = guildId;
+        this.actionType = actionType;
+        this.targetId = targetId;
+        this.roleId = roleId;
+        this.createdAt = createdAt;
+        this.executeAt = executeAt;
+        this.attempts = attempts;
+    }
+
+    // Retries only move the in-memory copy; the row keeps its original executeAt so a restart runs it straight away.
+    public ScheduledAction retryAt(long retryAt) {
+        return new ScheduledAction(id, guildId, actionType, targetId, roleId, createdAt, retryAt, attempts + 1);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getGuildId() {
+        return guildId;
+    }
+
+    public ActionType getActionType() {
+        return actionType;
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    public long getRoleId() {
+        return roleId;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getExecuteAt() {
+        return executeAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getDurationMinutes() {
+        return TimeUnit.MILLISECONDS.toMinutes(executeAt - createdAt);
+    }
+
+    public boolean matches(long guildId, long targetId, ActionType actionType) {
+        return this.guildId == guildId && this.targetId == targetId && this.actionType == actionType;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(executeAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other instanceof ScheduledAction) {
+            return Long.compare(executeAt, ((ScheduledAction) other).executeAt);
+        }
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
@@ -4,18 +4,28 @@ import java.io.Serializable;
 
 public class WarnRecord implements Serializable {
     private static final long serialVersionUID = 1L;
+    private long guildId;
     private String userId;
     private String moderatorId;
     private String reason;
     private long timestamp;
 
     public WarnRecord(String userId, String moderatorId, String reason, long timestamp) {
+        this(0L, userId, moderatorId, reason, timestamp);
+    }
+
+    public WarnRecord(long guildId, String userId, String moderatorId, String reason, long timestamp) {
+        this.guildId = guildId;
         this.userId = userId;
         this.moderatorId = moderatorId;
         this.reason = reason;
         this.timestamp = timestamp;
     }
 
+    public long getGuildId() {
+        return guildId;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -0,0 +1,92 @@
+package com.bryce.discord.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Content-addressed store: each chunk is saved once as chunks/<2 hex>/<sha-256>.gz, whichever snapshot it came from.
+public class BackupChunkStore {
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path root;
+
+    public BackupChunkStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    public static String hash(byte[] data, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return HEX.formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean contains(String hash) {
+        return Files.exists(pathFor(hash));
+    }
+
+    // Returns the number of compressed bytes written, or 0 if the chunk was already stored.
+    public long put(String hash, byte[] data, int length) throws IOException {
+        Path target = pathFor(hash);
+        if (Files.exists(target)) {
+            return 0;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(hash + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            out.write(data, 0, length);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(target);
+    }
+
+    // Reads a chunk back and checks it still hashes to its name, so a damaged chunk fails the restore loudly.
+    public byte[] get(String hash) throws IOException {
+        byte[] data;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(pathFor(hash)))) {
+            data = in.readAllBytes();
+        }
+        if (!hash(data, data.length).equals(hash)) {
+            throw new IOException("Chunk " + hash + " is corrupt");
+        }
+        return data;
+    }
+
+    // Deletes every stored chunk that no remaining manifest references.
+    public int removeUnreferenced(Set<String> referenced) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        int removed = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String hash = name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+            if (!referenced.contains(hash)) {
+                Files.deleteIfExists(file);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + ".gz");
+    }
+}
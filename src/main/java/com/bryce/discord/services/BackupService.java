@@ -1,42 +1,97 @@
 package com.bryce.discord.services;
 
+import com.bryce.discord.models.BackupManifest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import java.io.*;
 import java.nio.file.*;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 public class BackupService {
     private static final String DB_FILE = "modbot.db";
     private static final String BACKUP_DIR = "backups";
-    private static final String BACKUP_FILE = BACKUP_DIR + "/modbot_backup.db";
+    private static final String LEGACY_BACKUP_FILE = BACKUP_DIR + "/modbot_backup.db";
+    private static final String SNAPSHOT_FILE = BACKUP_DIR + "/snapshot.tmp";
+    private static final String MANIFEST_DIR = BACKUP_DIR + "/manifests";
+    private static final String CHUNK_DIR = BACKUP_DIR + "/chunks";
     private static final int BACKUP_INTERVAL_MINUTES = 30;
 
-    private Timer backupTimer;
+    // 64 KiB = 16 SQLite pages at the default 4 KiB page size, so a changed page dirties one chunk.
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final long KEEP_ALL_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int KEEP_HOURLY = 24;
+    private static final int KEEP_DAILY = 7;
+    private static final int KEEP_WEEKLY = 4;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ReentrantLock backupLock = new ReentrantLock();
+    private BackupChunkStore chunkStore;
+    private ScheduledFuture<?> backupTask;
+    private long writesAtLastSnapshot = -1;
 
     public BackupService() {
 
         try {
             Files.createDirectories(Paths.get(BACKUP_DIR));
+            Files.createDirectories(Paths.get(MANIFEST_DIR));
+            chunkStore = new BackupChunkStore(Paths.get(CHUNK_DIR));
             System.out.println("[BackupService] Backup directory created/verified: " + BACKUP_DIR);
         } catch (IOException e) {
             System.err.println("[BackupService] Failed to create backup directory: " + e.getMessage());
         }
     }
 
+    // Only restores when there is no usable database; a smaller live file is not a reason to roll it back.
     public void restoreFromBackup() {
-        File backupFile = new File(BACKUP_FILE);
         File dbFile = new File(DB_FILE);
+        if (dbFile.exists() && dbFile.length() > 0) {
+            System.out.println("[BackupService] Main database exists, skipping restore");
+            return;
+        }
 
-        if (backupFile.exists() && backupFile.length() > 0) {
+        List<BackupManifest> snapshots = listSnapshots();
+        if (!snapshots.isEmpty()) {
+            BackupManifest latest = snapshots.get(snapshots.size() - 1);
             try {
+                restoreSnapshot(latest, dbFile.toPath());
+                deleteSidecarFiles(dbFile.toPath());
+                System.out.println("[BackupService] ✅ Database restored from snapshot " + Instant.ofEpochMilli(latest.getCreatedAt()));
+            } catch (IOException | SQLException e) {
+                System.err.println("[BackupService] ❌ Failed to restore database from snapshot: " + e.getMessage());
+            }
+            return;
+        }
 
-                if (!dbFile.exists() || dbFile.length() < backupFile.length()) {
-                    Files.copy(backupFile.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    System.out.println("[BackupService] ✅ Database restored from backup successfully!");
-                    System.out.println("[BackupService] Restored " + backupFile.length() + " bytes");
-                } else {
-                    System.out.println("[BackupService] Main database exists and is up to date, skipping restore");
-                }
+        File legacyBackup = new File(LEGACY_BACKUP_FILE);
+        if (legacyBackup.exists() && legacyBackup.length() > 0) {
+            try {
+                Files.copy(legacyBackup.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                deleteSidecarFiles(dbFile.toPath());
+                System.out.println("[BackupService] ✅ Database restored from backup successfully!");
+                System.out.println("[BackupService] Restored " + legacyBackup.length() + " bytes");
             } catch (IOException e) {
                 System.err.println("[BackupService] ❌ Failed to restore database from backup: " + e.getMessage());
             }
@@ -45,44 +100,283 @@ public class BackupService {
         }
     }
 
-    public void createBackup() {
-        File dbFile = new File(DB_FILE);
-        File backupFile = new File(BACKUP_FILE);
+    // Writes the newest snapshot taken at or before the given time to target. Returns the snapshot used, or null.
+    public BackupManifest restoreToPointInTime(long timestamp, Path target) throws IOException, SQLException {
+        BackupManifest chosen = null;
+        for (BackupManifest manifest : listSnapshots()) {
+            if (manifest.getCreatedAt() <= timestamp) {
+                chosen = manifest;
+            }
+        }
+        if (chosen == null) {
+            System.out.println("[BackupService] No snapshot exists at or before " + Instant.ofEpochMilli(timestamp));
+            return null;
+        }
+        backupLock.lock();
+        try {
+            restoreSnapshot(chosen, target);
+        } finally {
+            backupLock.unlock();
+        }
+        System.out.println("[BackupService] ✅ Restored snapshot " + Instant.ofEpochMilli(chosen.getCreatedAt()) + " to " + target);
+        return chosen;
+    }
 
-        if (!dbFile.exists()) {
-            System.out.println("[BackupService] No database file to backup");
-            return;
+    // Startup-only, before the database pool opens. The snapshot is rebuilt and checked in the backup directory first,
+    // then the live files are moved aside to backups/pre-restore-<time>.db so the restore can itself be undone.
+    public BackupManifest restoreLiveDatabase(long timestamp) throws IOException, SQLException {
+        Path dbFile = Paths.get(DB_FILE);
+        Path staged = Paths.get(BACKUP_DIR, "point-in-time.db");
+        BackupManifest chosen = restoreToPointInTime(timestamp, staged);
+        if (chosen == null) {
+            throw new IOException("No snapshot exists at or before " + Instant.ofEpochMilli(timestamp));
         }
 
+        Path previous = Paths.get(BACKUP_DIR, "pre-restore-" + System.currentTimeMillis() + ".db");
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Path live = dbFile.resolveSibling(dbFile.getFileName() + suffix);
+            if (Files.exists(live)) {
+                Files.move(live, previous.resolveSibling(previous.getFileName() + suffix));
+            }
+        }
+        Files.move(staged, dbFile, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("[BackupService] ✅ Live database replaced with snapshot " + Instant.ofEpochMilli(chosen.getCreatedAt())
+                + ", previous files kept as " + previous);
+        return chosen;
+    }
+
+    // Runs on the scheduler thread. DatabaseManager.backupTo copies the database from one read snapshot on a pooled
+    // reader, so writers are not blocked, and gives up after a timeout. The copy is then split into chunks and only
+    // chunks not already in the store are compressed and written. Writes and storage scale with the changed chunks,
+    // but the copy, the integrity check and the hashing each still read the whole database: SQLite does not expose
+    // which pages changed over JDBC. A run is skipped outright when nothing was written since the last snapshot.
+    public void createBackup() {
+        if (chunkStore == null) {
+            System.err.println("[BackupService] Backup directory unavailable, skipping backup");
+            return;
+        }
+        if (!backupLock.tryLock()) {
+            System.out.println("[BackupService] Backup already in progress, skipping");
+            return;
+        }
+        Path snapshotPath = Paths.get(SNAPSHOT_FILE);
         try {
-            Files.copy(dbFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // Read before the copy, so a write that races the copy makes the next run take a fresh snapshot.
+            long writes = DatabaseManager.getWriterBorrowCount();
+            if (writes == writesAtLastSnapshot) {
+                System.out.println("[BackupService] Nothing written since the last snapshot, skipping");
+                return;
+            }
+            Files.deleteIfExists(snapshotPath);
+            long createdAt = System.currentTimeMillis();
+
+            long start = System.nanoTime();
+            DatabaseManager.backupTo(snapshotPath);
+            long copyNanos = System.nanoTime() - start;
+
+            long checkStart = System.nanoTime();
+            String integrity = checkIntegrity(snapshotPath);
+            long checkMs = (System.nanoTime() - checkStart) / 1_000_000;
+            if (!"ok".equals(integrity)) {
+                System.err.println("[BackupService] ❌ Backup failed integrity check, keeping previous snapshots: " + integrity);
+                return;
+            }
+
+            long chunkStart = System.nanoTime();
+            long size = Files.size(snapshotPath);
+            List<String> chunks = new ArrayList<>((int) (size / CHUNK_SIZE) + 1);
+            int newChunks = 0;
+            long bytesWritten = 0;
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try (InputStream in = Files.newInputStream(snapshotPath)) {
+                int read;
+                while ((read = in.readNBytes(buffer, 0, CHUNK_SIZE)) > 0) {
+                    String hash = BackupChunkStore.hash(buffer, read);
+                    long written = chunkStore.put(hash, buffer, read);
+                    if (written > 0) {
+                        newChunks++;
+                        bytesWritten += written;
+                    }
+                    chunks.add(hash);
+                }
+            }
+            long chunkMs = (System.nanoTime() - chunkStart) / 1_000_000;
+
+            BackupManifest manifest = new BackupManifest(createdAt, size, CHUNK_SIZE, chunks);
+            List<BackupManifest> snapshots = listSnapshots();
+            if (!snapshots.isEmpty() && manifest.hasSameContent(snapshots.get(snapshots.size() - 1))) {
+                System.out.println("[BackupService] No changes since the last snapshot, nothing stored");
+                writesAtLastSnapshot = writes;
+                return;
+            }
+            writeManifest(manifest);
+            writesAtLastSnapshot = writes;
+
+            long copyMs = copyNanos / 1_000_000;
+            double mbPerSecond = copyNanos == 0 ? 0 : (size / 1_048_576.0) / (copyNanos / 1_000_000_000.0);
             System.out.println("[BackupService] ✅ Database backed up successfully!");
-            System.out.println("[BackupService] Backed up " + dbFile.length() + " bytes to " + BACKUP_FILE);
-        } catch (IOException e) {
+            System.out.println(String.format("[BackupService] Snapshot of %d bytes in %dms (%.1f MB/s), integrity check %dms, " +
+                            "%d/%d chunks new (%d bytes compressed) in %dms",
+                    size, copyMs, mbPerSecond, checkMs, newChunks, chunks.size(), bytesWritten, chunkMs));
+
+            applyRetention();
+        } catch (SQLException | IOException e) {
             System.err.println("[BackupService] ❌ Failed to create backup: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(snapshotPath);
+            } catch (IOException ignored) {
+            }
+            backupLock.unlock();
+        }
+    }
+
+    public List<BackupManifest> listSnapshots() {
+        List<BackupManifest> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(MANIFEST_DIR))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(".json")) continue;
+                try {
+                    snapshots.add(readManifest(file));
+                } catch (IOException e) {
+                    System.err.println("[BackupService] Ignoring unreadable manifest " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[BackupService] Could not list snapshots: " + e.getMessage());
+        }
+        snapshots.sort(Comparator.comparingLong(BackupManifest::getCreatedAt));
+        return snapshots;
+    }
+
+    private void restoreSnapshot(BackupManifest manifest, Path target) throws IOException, SQLException {
+        Path temp = target.resolveSibling(target.getFileName() + ".restore");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                for (String hash : manifest.getChunks()) {
+                    out.write(chunkStore.get(hash));
+                }
+            }
+            if (Files.size(temp) != manifest.getSize()) {
+                throw new IOException("Restored " + Files.size(temp) + " bytes, snapshot has " + manifest.getSize());
+            }
+            String integrity = checkIntegrity(temp);
+            if (!"ok".equals(integrity)) {
+                throw new IOException("Restored snapshot failed integrity check: " + integrity);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Keeps every snapshot from the last hour, then the newest snapshot of each of the last KEEP_HOURLY hours,
+    // KEEP_DAILY days and KEEP_WEEKLY weeks, then drops chunks no kept snapshot refers to.
+    private void applyRetention() throws IOException {
+        List<BackupManifest> snapshots = listSnapshots();
+        Set<Long> hours = new HashSet<>();
+        Set<Long> days = new HashSet<>();
+        Set<Long> weeks = new HashSet<>();
+        Set<String> referenced = new HashSet<>();
+        int removed = 0;
+        long now = System.currentTimeMillis();
+
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            BackupManifest manifest = snapshots.get(i);
+            ZonedDateTime time = Instant.ofEpochMilli(manifest.getCreatedAt()).atZone(ZONE);
+            long hour = time.truncatedTo(ChronoUnit.HOURS).toEpochSecond();
+            long day = time.toLocalDate().toEpochDay();
+            long week = time.get(IsoFields.WEEK_BASED_YEAR) * 100L + time.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+
+            boolean keep = i == snapshots.size() - 1 || now - manifest.getCreatedAt() < KEEP_ALL_MS;
+            keep |= claim(hours, hour, KEEP_HOURLY);
+            keep |= claim(days, day, KEEP_DAILY);
+            keep |= claim(weeks, week, KEEP_WEEKLY);
+
+            if (keep) {
+                referenced.addAll(manifest.getChunks());
+            } else {
+                Files.deleteIfExists(manifestPath(manifest.getCreatedAt()));
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            int removedChunks = chunkStore.removeUnreferenced(referenced);
+            System.out.println("[BackupService] Retention removed " + removed + " snapshot(s) and " + removedChunks + " chunk(s)");
+        }
+    }
+
+    private static boolean claim(Set<Long> buckets, long bucket, int limit) {
+        if (buckets.contains(bucket) || buckets.size() >= limit) {
+            return false;
         }
+        buckets.add(bucket);
+        return true;
+    }
+
+    private void writeManifest(BackupManifest manifest) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("createdAt", manifest.getCreatedAt());
+        root.put("size", manifest.getSize());
+        root.put("chunkSize", manifest.getChunkSize());
+        ArrayNode chunks = root.putArray("chunks");
+        manifest.getChunks().forEach(chunks::add);
+
+        Path target = manifestPath(manifest.getCreatedAt());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        mapper.writeValue(temp.toFile(), root);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
-    public void startAutoBackup() {
-        if (backupTimer != null) {
-            backupTimer.cancel();
+    private BackupManifest readManifest(Path file) throws IOException {
+        JsonNode root = mapper.readTree(file.toFile());
+        List<String> chunks = new ArrayList<>();
+        for (JsonNode chunk : root.path("chunks")) {
+            chunks.add(chunk.asText());
         }
+        return new BackupManifest(root.path("createdAt").asLong(), root.path("size").asLong(),
+                root.path("chunkSize").asInt(), chunks);
+    }
+
+    private static Path manifestPath(long createdAt) {
+        return Paths.get(MANIFEST_DIR, "snapshot-" + createdAt + ".json");
+    }
+
+    // A -wal or -shm left from the lost database would be replayed against the restored file.
+    private static void deleteSidecarFiles(Path dbFile) throws IOException {
+        Files.deleteIfExists(dbFile.resolveSibling(dbFile.getFileName() + "-wal"));
+        Files.deleteIfExists(dbFile.resolveSibling(dbFile.getFileName() + "-shm"));
+    }
 
-        backupTimer = new Timer("DatabaseBackupTimer", true);
-        backupTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                createBackup();
+    private String checkIntegrity(Path path) throws SQLException {
+        StringBuilder result = new StringBuilder();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + path.toAbsolutePath());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+            while (rs.next()) {
+                if (result.length() > 0) result.append("; ");
+                result.append(rs.getString(1));
             }
-        }, BACKUP_INTERVAL_MINUTES * 60 * 1000, BACKUP_INTERVAL_MINUTES * 60 * 1000);
+        }
+        return result.toString();
+    }
+
+    public void startAutoBackup(SchedulerService scheduler) {
+        if (backupTask != null) {
+            backupTask.cancel(false);
+        }
+
+        backupTask = scheduler.scheduleAtFixedRate("backup", this::createBackup,
+                BACKUP_INTERVAL_MINUTES, BACKUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
 
         System.out.println("[BackupService] ✅ Auto-backup started (every " + BACKUP_INTERVAL_MINUTES + " minutes)");
     }
 
     public void stopAutoBackup() {
-        if (backupTimer != null) {
-            backupTimer.cancel();
-            backupTimer = null;
+        if (backupTask != null) {
+            backupTask.cancel(false);
+            backupTask = null;
             System.out.println("[BackupService] Auto-backup stopped");
         }
     }
@@ -92,4 +386,4 @@ public class BackupService {
         createBackup();
         stopAutoBackup();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.bryce.discord.services;
+
+import com.bryce.discord.utils.LongIntMap;
+
+import java.util.Map;
+
+public class ChannelRuleTable {
+    public static final int MEDIA_ONLY = 1;
+    public static final int SCREENSHOT_ONLY = 1 << 1;
+    public static final int NO_MESSAGE = 1 << 2;
+    public static final int NO_MEDIA = 1 << 3;
+    public static final int NO_CONTENT = 1 << 4;
+
+    // Filled once here and never written again, so the final field makes it safe to read from any thread.
+    private final LongIntMap rules;
+
+    public ChannelRuleTable(Map<Long, Integer> channelRules) {
+        this.rules = new LongIntMap(channelRules.size());
+        for (Map.Entry<Long, Integer> entry : channelRules.entrySet()) {
+            if (entry.getKey() == 0L || entry.getValue() == 0) continue;
+            rules.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public int rulesFor(long channelId) {
+        return rules.get(channelId);
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public static boolean hasRule(int channelRules, int rule) {
+        return (channelRules & rule) != 0;
+    }
+}
@@ -1,48 +1,74 @@
 package com.bryce.discord.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.cdimascio.dotenv.Dotenv;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.Permission;
 
-import java.util.HashSet;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 public class ConfigService {
-    private final Set<String> noMessageChannels = new HashSet<>();
-    private final Set<String> noMediaChannels = new HashSet<>();
-    private final Set<String> noContentChannels = new HashSet<>();
-    private final Set<String> screenshotOnlyChannels = new HashSet<>();
-    private final Set<String> mediaOnlyChannels = new HashSet<>();
-    private final Set<String> moderatorRoles = new HashSet<>();
-    private final Set<String> adminRoles = new HashSet<>();
+    private static final int PERMISSION_CACHE_SIZE = 10000;
+    private static final long PERMISSION_CACHE_TTL_MS = 5 * 60 * 1000;
+    private static final long RELOAD_DEBOUNCE_MS = 500;
 
-    private final Map<String, Boolean> permissionCache = new ConcurrentHashMap<>();
+    // Role add/remove events need the GUILD_MEMBERS intent, so the TTL bounds staleness when they are not delivered.
+    private final PermissionCache permissionCache = new PermissionCache(PERMISSION_CACHE_SIZE, PERMISSION_CACHE_TTL_MS);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path configPath;
+
+    // Everything the message and permission paths read lives in one immutable snapshot; writers build a new one and swap it in.
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private ConfigSnapshot builtInSnapshot = ConfigSnapshot.EMPTY;
+    private WatchService watchService;
 
     public static final String MODERATION_LOG_CHANNEL_NAME = "moderation-logs";
     public static final String PURGE_LOG_CHANNEL_NAME = "server-logs";
 
+    public ConfigService() {
+        Dotenv env = Dotenv.configure().ignoreIfMissing().load();
+        String path = env.get("CONFIG_FILE");
+        this.configPath = Paths.get(path != null && !path.isBlank() ? path : "bot-config.json").toAbsolutePath();
+    }
+
     public boolean hasModeratorPermissions(Member member) {
         if (member == null) {
             return false;
         }
 
-        String cacheKey = "mod:" + member.getId();
-        if (permissionCache.containsKey(cacheKey)) {
-            return permissionCache.get(cacheKey);
+        long guildId = member.getGuild().getIdLong();
+        long memberId = member.getIdLong();
+        int cached = permissionCache.get(guildId, memberId, PermissionCache.MODERATOR);
+        if (cached >= 0) {
+            return cached == 1;
         }
+        long generation = permissionCache.generation();
 
         boolean hasPermissions = member.hasPermission(Permission.MESSAGE_MANAGE) ||
                 member.hasPermission(Permission.MODERATE_MEMBERS) ||
                 hasAdminPermissions(member);
 
         if (!hasPermissions) {
+            ConfigSnapshot config = snapshot;
             hasPermissions = member.getRoles().stream()
-                    .anyMatch(role -> moderatorRoles.contains(role.getId()) ||
-                            adminRoles.contains(role.getId()));
+                    .anyMatch(role -> config.getModeratorRoles().contains(role.getId()) ||
+                            config.getAdminRoles().contains(role.getId()));
         }
 
-        permissionCache.put(cacheKey, hasPermissions);
+        permissionCache.put(guildId, memberId, PermissionCache.MODERATOR, hasPermissions, generation);
         return hasPermissions;
     }
 
@@ -51,76 +77,223 @@ public class ConfigService {
             return false;
         }
 
-        String cacheKey = "admin:" + member.getId();
-        if (permissionCache.containsKey(cacheKey)) {
-            return permissionCache.get(cacheKey);
+        long guildId = member.getGuild().getIdLong();
+        long memberId = member.getIdLong();
+        int cached = permissionCache.get(guildId, memberId, PermissionCache.ADMIN);
+        if (cached >= 0) {
+            return cached == 1;
         }
+        long generation = permissionCache.generation();
 
         boolean hasPermissions = member.hasPermission(Permission.ADMINISTRATOR) ||
                 member.hasPermission(Permission.MANAGE_SERVER) ||
                 member.hasPermission(Permission.BAN_MEMBERS);
 
         if (!hasPermissions) {
+            ConfigSnapshot config = snapshot;
             hasPermissions = member.getRoles().stream()
-                    .anyMatch(role -> adminRoles.contains(role.getId()));
+                    .anyMatch(role -> config.getAdminRoles().contains(role.getId()));
         }
 
-        permissionCache.put(cacheKey, hasPermissions);
+        permissionCache.put(guildId, memberId, PermissionCache.ADMIN, hasPermissions, generation);
         return hasPermissions;
     }
 
     public void clearPermissionCache(String memberId) {
-        permissionCache.remove("mod:" + memberId);
-        permissionCache.remove("admin:" + memberId);
+        permissionCache.invalidateMember(Long.parseLong(memberId));
+    }
+
+    public void clearPermissionCache(long guildId, long memberId) {
+        permissionCache.invalidate(guildId, memberId);
+    }
+
+    public void clearGuildPermissionCache(long guildId) {
+        permissionCache.invalidateGuild(guildId);
+    }
+
+    public String getPermissionCacheStats() {
+        return permissionCache.getStats();
+    }
+
+    public synchronized void addNoMessageChannel(String channelId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addNoMessageChannel(channelId).build());
+    }
+
+    public synchronized void addNoMediaChannel(String channelId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addNoMediaChannel(channelId).build());
+    }
+
+    public synchronized void addNoContentChannel(String channelId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addNoContentChannel(channelId).build());
+    }
+
+    public synchronized void addScreenshotOnlyChannel(String channelId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addScreenshotOnlyChannel(channelId).build());
+    }
+
+    public synchronized void addMediaOnlyChannel(String channelId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addMediaOnlyChannel(channelId).build());
+    }
+
+    public synchronized void addModeratorRole(String roleId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addModeratorRole(roleId).build());
     }
 
-    public void addNoMessageChannel(String channelId) {
-        noMessageChannels.add(channelId);
+    public synchronized void addAdminRole(String roleId) {
+        publish(snapshot.toBuilder(snapshot.getSource()).addAdminRole(roleId).build());
     }
 
-    public void addNoMediaChannel(String channelId) {
-        noMediaChannels.add(channelId);
+    private void publish(ConfigSnapshot next) {
+        snapshot = next;
+        permissionCache.invalidateAll();
     }
 
-    public void addNoContentChannel(String channelId) {
-        noContentChannels.add(channelId);
+    // The hard-coded rules registered so far become the fallback used whenever the config file is absent.
+    public synchronized void loadConfiguration() {
+        builtInSnapshot = snapshot.toBuilder("built-in defaults").build();
+        try {
+            reload();
+        } catch (IOException e) {
+            publish(builtInSnapshot);
+            System.err.println("[ConfigService] ❌ Could not load " + configPath + ", using built-in defaults: " + e.getMessage());
+        }
     }
 
-    public void addScreenshotOnlyChannel(String channelId) {
-        screenshotOnlyChannels.add(channelId);
+    // A file that fails to parse leaves the current snapshot in place.
+    public synchronized ConfigSnapshot reload() throws IOException {
+        ConfigSnapshot next;
+        if (Files.exists(configPath)) {
+            next = parse(mapper.readTree(configPath.toFile()), configPath.getFileName().toString());
+        } else {
+            next = builtInSnapshot;
+        }
+        publish(next);
+        System.out.println("[ConfigService] ✅ Loaded configuration: " + next.describe());
+        return next;
     }
 
-    public void addMediaOnlyChannel(String channelId) {
-        mediaOnlyChannels.add(channelId);
+    private ConfigSnapshot parse(JsonNode root, String source) throws IOException {
+        if (root == null || !root.isObject()) {
+            throw new IOException("expected a JSON object at the top level");
+        }
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(source);
+        readIds(root, "mediaOnlyChannels", builder, ConfigSnapshot.Builder::addMediaOnlyChannel);
+        readIds(root, "screenshotOnlyChannels", builder, ConfigSnapshot.Builder::addScreenshotOnlyChannel);
+        readIds(root, "noMessageChannels", builder, ConfigSnapshot.Builder::addNoMessageChannel);
+        readIds(root, "noMediaChannels", builder, ConfigSnapshot.Builder::addNoMediaChannel);
+        readIds(root, "noContentChannels", builder, ConfigSnapshot.Builder::addNoContentChannel);
+        readIds(root, "moderatorRoles", builder, ConfigSnapshot.Builder::addModeratorRole);
+        readIds(root, "adminRoles", builder, ConfigSnapshot.Builder::addAdminRole);
+        return builder.build();
     }
 
-    public void addModeratorRole(String roleId) {
-        moderatorRoles.add(roleId);
+    private static void readIds(JsonNode root, String field, ConfigSnapshot.Builder builder,
+                                BiConsumer<ConfigSnapshot.Builder, String> adder) throws IOException {
+        JsonNode ids = root.get(field);
+        if (ids == null || ids.isNull()) return;
+        if (!ids.isArray()) {
+            throw new IOException("'" + field + "' must be an array of ids");
+        }
+        for (JsonNode id : ids) {
+            String value = id.asText();
+            if (!value.matches("\\d{1,20}")) {
+                throw new IOException("'" + field + "' contains invalid id '" + value + "'");
+            }
+            adder.accept(builder, value);
+        }
     }
 
-    public void addAdminRole(String roleId) {
-        adminRoles.add(roleId);
+    public synchronized void startWatching() {
+        if (watchService != null) return;
+        Path directory = configPath.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            System.err.println("[ConfigService] Could not watch " + directory + " for config changes: " + e.getMessage());
+            return;
+        }
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watchConfigFile(service), "Config-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("[ConfigService] Watching " + configPath + " for changes");
+    }
+
+    private void watchConfigFile(WatchService service) {
+        Path fileName = configPath.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (!changed) continue;
+
+                // Editors often write a file in several steps; wait for them to settle before reading it.
+                Thread.sleep(RELOAD_DEBOUNCE_MS);
+                WatchKey pending;
+                while ((pending = service.poll()) != null) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+
+                try {
+                    reload();
+                } catch (IOException e) {
+                    System.err.println("[ConfigService] ❌ Ignoring invalid config change, keeping previous rules: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("[ConfigService] Error closing config watcher: " + e.getMessage());
+        }
+        watchService = null;
+    }
+
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getChannelRules(long channelId) {
+        return snapshot.getChannelRules().rulesFor(channelId);
     }
 
     public Set<String> getNoMessageChannels() {
-        return noMessageChannels;
+        return snapshot.getNoMessageChannels();
     }
 
     public Set<String> getNoMediaChannels() {
-        return noMediaChannels;
+        return snapshot.getNoMediaChannels();
     }
 
     public Set<String> getNoContentChannels() {
-        return noContentChannels;
+        return snapshot.getNoContentChannels();
     }
 
     public Set<String> getScreenshotOnlyChannels() {
-        return screenshotOnlyChannels;
+        return snapshot.getScreenshotOnlyChannels();
     }
 
     public Set<String> getMediaOnlyChannels() {
-        return mediaOnlyChannels;
+        return snapshot.getMediaOnlyChannels();
     }
+
     public boolean canModerate(Member moderator, Member target) {
         if (moderator == null || target == null) {
             return false;
@@ -0,0 +1,166 @@
+package com.bryce.discord.services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class ConfigSnapshot {
+    public static final ConfigSnapshot EMPTY = new Builder("empty").build();
+
+    private final Set<String> mediaOnlyChannels;
+    private final Set<String> screenshotOnlyChannels;
+    private final Set<String> noMessageChannels;
+    private final Set<String> noMediaChannels;
+    private final Set<String> noContentChannels;
+    private final Set<String> moderatorRoles;
+    private final Set<String> adminRoles;
+    private final ChannelRuleTable channelRules;
+    private final String source;
+    private final long loadedAt;
+
+    private ConfigSnapshot(Builder builder) {
+        this.mediaOnlyChannels = Collections.unmodifiableSet(new LinkedHashSet<>(builder.mediaOnlyChannels));
+        this.screenshotOnlyChannels = Collections.unmodifiableSet(new LinkedHashSet<>(builder.screenshotOnlyChannels));
+        this.noMessageChannels = Collections.unmodifiableSet(new LinkedHashSet<>(builder.noMessageChannels));
+        this.noMediaChannels = Collections.unmodifiableSet(new LinkedHashSet<>(builder.noMediaChannels));
+        this.noContentChannels = Collections.unmodifiableSet(new LinkedHashSet<>(builder.noContentChannels));
+        this.moderatorRoles = Collections.unmodifiableSet(new LinkedHashSet<>(builder.moderatorRoles));
+        this.adminRoles = Collections.unmodifiableSet(new LinkedHashSet<>(builder.adminRoles));
+        this.channelRules = compileChannelRules();
+        this.source = builder.source;
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    private ChannelRuleTable compileChannelRules() {
+        Map<Long, Integer> compiled = new HashMap<>();
+        addChannelRule(compiled, mediaOnlyChannels, ChannelRuleTable.MEDIA_ONLY);
+        addChannelRule(compiled, screenshotOnlyChannels, ChannelRuleTable.SCREENSHOT_ONLY);
+        addChannelRule(compiled, noMessageChannels, ChannelRuleTable.NO_MESSAGE);
+        addChannelRule(compiled, noMediaChannels, ChannelRuleTable.NO_MEDIA);
+        addChannelRule(compiled, noContentChannels, ChannelRuleTable.NO_CONTENT);
+        return new ChannelRuleTable(compiled);
+    }
+
+    private static void addChannelRule(Map<Long, Integer> compiled, Set<String> channelIds, int rule) {
+        for (String channelId : channelIds) {
+            try {
+                compiled.merge(Long.parseLong(channelId), rule, (a, b) -> a | b);
+            } catch (NumberFormatException e) {
+                System.err.println("[ConfigService] Ignoring invalid channel id '" + channelId + "'");
+            }
+        }
+    }
+
+    public Set<String> getMediaOnlyChannels() {
+        return mediaOnlyChannels;
+    }
+
+    public Set<String> getScreenshotOnlyChannels() {
+        return screenshotOnlyChannels;
+    }
+
+    public Set<String> getNoMessageChannels() {
+        return noMessageChannels;
+    }
+
+    public Set<String> getNoMediaChannels() {
+        return noMediaChannels;
+    }
+
+    public Set<String> getNoContentChannels() {
+        return noContentChannels;
+    }
+
+    public Set<String> getModeratorRoles() {
+        return moderatorRoles;
+    }
+
+    public Set<String> getAdminRoles() {
+        return adminRoles;
+    }
+
+    public ChannelRuleTable getChannelRules() {
+        return channelRules;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    public String describe() {
+        return channelRules.size() + " restricted channels, " + moderatorRoles.size() + " moderator roles, " +
+                adminRoles.size() + " admin roles (from " + source + ")";
+    }
+
+    public Builder toBuilder(String source) {
+        Builder builder = new Builder(source);
+        builder.mediaOnlyChannels.addAll(mediaOnlyChannels);
+        builder.screenshotOnlyChannels.addAll(screenshotOnlyChannels);
+        builder.noMessageChannels.addAll(noMessageChannels);
+        builder.noMediaChannels.addAll(noMediaChannels);
+        builder.noContentChannels.addAll(noContentChannels);
+        builder.moderatorRoles.addAll(moderatorRoles);
+        builder.adminRoles.addAll(adminRoles);
+        return builder;
+    }
+
+    public static class Builder {
+        private final Set<String> mediaOnlyChannels = new LinkedHashSet<>();
+        private final Set<String> screenshotOnlyChannels = new LinkedHashSet<>();
+        private final Set<String> noMessageChannels = new LinkedHashSet<>();
+        private final Set<String> noMediaChannels = new LinkedHashSet<>();
+        private final Set<String> noContentChannels = new LinkedHashSet<>();
+        private final Set<String> moderatorRoles = new LinkedHashSet<>();
+        private final Set<String> adminRoles = new LinkedHashSet<>();
+        private final String source;
+
+        public Builder(String source) {
+            this.source = source;
+        }
+
+        public Builder addMediaOnlyChannel(String channelId) {
+            mediaOnlyChannels.add(channelId);
+            return this;
+        }
+
+        public Builder addScreenshotOnlyChannel(String channelId) {
+            screenshotOnlyChannels.add(channelId);
+            return this;
+        }
+
+        public Builder addNoMessageChannel(String channelId) {
+            noMessageChannels.add(channelId);
+            return this;
+        }
+
+        public Builder addNoMediaChannel(String channelId) {
+            noMediaChannels.add(channelId);
+            return this;
+        }
+
+        public Builder addNoContentChannel(String channelId) {
+            noContentChannels.add(channelId);
+            return this;
+        }
+
+        public Builder addModeratorRole(String roleId) {
+            moderatorRoles.add(roleId);
+            return this;
+        }
+
+        public Builder addAdminRole(String roleId) {
+            adminRoles.add(roleId);
+            return this;
+        }
+
+        public ConfigSnapshot build() {
+            return new ConfigSnapshot(this);
+        }
+    }
+}
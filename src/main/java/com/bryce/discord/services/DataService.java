@@ -1,95 +1,131 @@
 package com.bryce.discord.services;
 
+import com.bryce.discord.models.GuildSettings;
 import com.bryce.discord.models.WarnRecord;
 import com.bryce.discord.models.ModAction;
 import com.bryce.discord.analytics.ActionType;
+import com.bryce.discord.utils.LongObjectMap;
 import net.dv8tion.jda.api.entities.Guild;
 
-import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class DataService {
 
     private static final boolean DEBUG_MODE = false;
 
-    private String muteRoleId = null;
+    private static final String INSERT_WARNING_SQL = "INSERT INTO warnings (guildId, userId, moderatorId, reason, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_ANALYTICS_SQL = "INSERT INTO moderation_analytics (guildId, action, moderatorId, moderatorName, targetId, targetName, reason, timestamp, duration, count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String COUNT_WARNINGS_FOR_USER_SQL = "SELECT COUNT(*) FROM warnings WHERE guildId = ? AND userId = ?";
+    private static final String INSERT_COMMAND_LOG_SQL = "INSERT INTO command_logs (guildId, userId, userName, commandName, timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_GUILD_SETTING_SQL = "INSERT OR REPLACE INTO guild_settings (guildId, key, value) VALUES (?, ?, ?)";
+
     private boolean warningsModified = false;
 
+    private final WriteBehindQueue writeQueue = new WriteBehindQueue();
+    private final LongObjectMap<Map<String, AtomicInteger>> warningCounts = new LongObjectMap<>();
+    private final LongObjectMap<GuildSettings> guildSettings = new LongObjectMap<>();
+
     public void loadAllData() {
-        loadMuteRoleIdFromDatabase();
+        loadGuildSettingsFromDatabase();
         warningsModified = false;
     }
 
     public void saveAllData() {
+        writeQueue.flush();
         warningsModified = false;
     }
 
+    public void shutdown() {
+        writeQueue.shutdown();
+    }
+
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
     public boolean isDataModified() {
         return warningsModified;
     }
 
-    public String getMuteRoleId() {
-        return muteRoleId;
+    public GuildSettings getGuildSettings(long guildId) {
+        return guildSettings.getOrDefault(guildId, GuildSettings.DEFAULTS);
     }
 
-    public void setMuteRoleId(String muteRoleId) {
-        saveMuteRoleIdToDatabase(muteRoleId);
+    public String getMuteRoleId(long guildId) {
+        return getGuildSettings(guildId).getMuteRoleId();
     }
 
     public void markWarningsModified() {
         warningsModified = true;
     }
 
-    public void addWarning(WarnRecord warn) {
-        saveWarnRecord(warn);
-        markWarningsModified();
+    private Map<String, AtomicInteger> warningCountsFor(long guildId) {
+        return warningCounts.computeIfAbsent(guildId, id -> new ConcurrentHashMap<>());
     }
 
-    public List<WarnRecord> getAllWarnings() {
-        return loadWarnRecords();
+    public CompletableFuture<Integer> addWarningAsync(WarnRecord warn) {
+        return warningCounterAsync(warn.getGuildId(), warn.getUserId()).handle((counter, error) -> {
+            saveWarnRecord(warn);
+            markWarningsModified();
+            if (error != null) {
+                throw new CompletionException(error);
+            }
+            return counter.incrementAndGet();
+        });
     }
 
-    public List<WarnRecord> getWarningsForUser(String userId) {
-        try {
-            return DatabaseManager.executeWithRetry(conn -> {
-                List<WarnRecord> records = new ArrayList<>();
-                String sql = "SELECT userId, moderatorId, reason, timestamp FROM warnings WHERE userId = ?";
+    // Every enqueued warning passes through its user's counter first, so a COUNT(*) taken on a
+    // miss already covers every row for that user; if two loads race, the first counter wins.
+    private CompletableFuture<AtomicInteger> warningCounterAsync(long guildId, String userId) {
+        Map<String, AtomicInteger> counts = warningCountsFor(guildId);
+        AtomicInteger counter = counts.get(userId);
+        if (counter != null) {
+            return CompletableFuture.completedFuture(counter);
+        }
+        return DatabaseManager.executeAsync(DatabaseManager.OperationType.READ, conn -> countWarnings(conn, guildId, userId))
+                .thenApply(loaded -> {
+                    AtomicInteger fresh = new AtomicInteger(loaded);
+                    AtomicInteger existing = counts.putIfAbsent(userId, fresh);
+                    return existing != null ? existing : fresh;
+                });
+    }
 
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, userId);
-                    try (ResultSet rs = pstmt.executeQuery()) {
-                        while (rs.next()) {
-                            WarnRecord record = new WarnRecord(
-                                    rs.getString("userId"),
-                                    rs.getString("moderatorId"),
-                                    rs.getString("reason"),
-                                    rs.getLong("timestamp")
-                            );
-                            records.add(record);
-                        }
-                    }
-                }
-                return records;
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+    private int countWarnings(Connection conn, long guildId, String userId) throws SQLException {
+        PreparedStatement pstmt = DatabaseManager.prepareCached(conn, COUNT_WARNINGS_FOR_USER_SQL);
+        pstmt.setLong(1, guildId);
+        pstmt.setString(2, userId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
-    public void deleteWarningsForUser(String userId) {
+    // The counter is reset in place while the writer still holds the delete, rather than swapped for a new one:
+    // an addWarningAsync that already holds the old counter would otherwise count into an orphan.
+    public void deleteWarningsForUser(long guildId, String userId) {
+        writeQueue.flush();
         try {
             DatabaseManager.executeWithRetry(conn -> {
-                String sql = "DELETE FROM warnings WHERE userId = ?";
+                String sql = "DELETE FROM warnings WHERE guildId = ? AND userId = ?";
                 try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, userId);
+                    pstmt.setLong(1, guildId);
+                    pstmt.setString(2, userId);
                     int rows = pstmt.executeUpdate();
-                    System.out.println("Deleted " + rows + " warnings for userId: " + userId);
+                    System.out.println("Deleted " + rows + " warnings for userId: " + userId + " in guild " + guildId);
+                }
+                AtomicInteger counter = warningCountsFor(guildId).get(userId);
+                if (counter != null) {
+                    counter.set(0);
                 }
                 return null;
             });
@@ -99,153 +135,138 @@ public class DataService {
     }
 
     public void saveWarnRecord(WarnRecord warn) {
-        try {
-            DatabaseManager.executeWithRetry(conn -> {
-                String sql = "INSERT INTO warnings (userId, moderatorId, reason, timestamp) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, warn.getUserId());
-                    pstmt.setString(2, warn.getModeratorId());
-                    pstmt.setString(3, warn.getReason());
-                    pstmt.setLong(4, warn.getTimestamp());
-
-                    if (DEBUG_MODE) {
-                        System.out.println("[DEBUG] Saving warning to DB for userId=" + warn.getUserId());
-                    }
-                    pstmt.executeUpdate();
-                }
-                return null;
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (DEBUG_MODE) {
+            System.out.println("[DEBUG] Saving warning to DB for userId=" + warn.getUserId());
         }
+        writeQueue.enqueue(WriteBehindQueue.WriteKind.WARNING, INSERT_WARNING_SQL,
+                warn.getGuildId(),
+                warn.getUserId(), warn.getModeratorId(), warn.getReason(), warn.getTimestamp());
     }
 
-    public List<WarnRecord> loadWarnRecords() {
-        try {
-            return DatabaseManager.executeWithRetry(conn -> {
-                List<WarnRecord> records = new ArrayList<>();
-                String sql = "SELECT userId, moderatorId, reason, timestamp FROM warnings";
+    public void saveModerationAnalytics(ModAction action) {
+        writeQueue.enqueue(WriteBehindQueue.WriteKind.ANALYTICS, INSERT_ANALYTICS_SQL,
+                action.getGuildId(),
+                action.getActionType().name(),
+                action.getModeratorId(),
+                action.getModeratorName(),
+                action.getTargetId(),
+                action.getTargetName(),
+                action.getReason(),
+                action.getTimestamp(),
+                action.getDuration(),
+                action.getCount());
+    }
 
-                try (PreparedStatement pstmt = conn.prepareStatement(sql);
+    public long getModerationAnalyticsMaxRowId() {
+        writeQueue.flush();
+        try {
+            return DatabaseManager.executeReadWithRetry(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(rowid), 0) FROM moderation_analytics");
                      ResultSet rs = pstmt.executeQuery()) {
-
-                    while (rs.next()) {
-                        WarnRecord record = new WarnRecord(
-                                rs.getString("userId"),
-                                rs.getString("moderatorId"),
-                                rs.getString("reason"),
-                                rs.getLong("timestamp")
-                        );
-                        records.add(record);
-                    }
+                    return rs.next() ? rs.getLong(1) : 0L;
                 }
-                return records;
             });
         } catch (Exception e) {
             e.printStackTrace();
-            return new ArrayList<>();
+            return 0L;
         }
     }
 
-    public void saveModerationAnalytics(ModAction action) {
-        try {
-            DatabaseManager.executeWithRetry(conn -> {
-                String sql = "INSERT INTO moderation_analytics (action, moderatorId, moderatorName, targetId, targetName, reason, timestamp, duration, count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public long streamModerationAnalytics(long maxRowId, int pageSize, Consumer<List<ModAction>> pageConsumer) throws SQLException {
+        String sql = "SELECT rowid, guildId, action, moderatorId, moderatorName, targetId, targetName, reason, timestamp, duration, count " +
+                "FROM moderation_analytics WHERE rowid > ? AND rowid <= ? ORDER BY rowid LIMIT ?";
+        long lastRowId = 0;
+        long loaded = 0;
 
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, action.getActionType().name());
-                    pstmt.setString(2, action.getModeratorId());
-                    pstmt.setString(3, action.getModeratorName());
-                    pstmt.setString(4, action.getTargetId());
-                    pstmt.setString(5, action.getTargetName());
-                    pstmt.setString(6, action.getReason());
-                    pstmt.setLong(7, action.getTimestamp());
-                    pstmt.setInt(8, action.getDuration());
-                    pstmt.setInt(9, action.getCount());
+        while (true) {
+            long afterRowId = lastRowId;
+            List<ModAction> page = new ArrayList<>(pageSize);
+            long[] pageLastRowId = {afterRowId};
 
-                    pstmt.executeUpdate();
+            // Each page borrows a reader briefly so the warm-up never pins a connection.
+            DatabaseManager.executeReadWithRetry(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, afterRowId);
+                    pstmt.setLong(2, maxRowId);
+                    pstmt.setInt(3, pageSize);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            pageLastRowId[0] = rs.getLong("rowid");
+                            try {
+                                page.add(mapModAction(rs));
+                            } catch (IllegalArgumentException e) {
+                                System.err.println("Skipping analytics row " + pageLastRowId[0] + ": unknown action " + rs.getString("action"));
+                            }
+                        }
+                    }
                 }
                 return null;
             });
-        } catch (Exception e) {
-            e.printStackTrace();
+
+            if (pageLastRowId[0] == afterRowId) {
+                return loaded;
+            }
+            lastRowId = pageLastRowId[0];
+            loaded += page.size();
+            pageConsumer.accept(page);
         }
     }
 
-    public List<ModAction> loadModerationAnalytics() {
-        try {
-            return DatabaseManager.executeWithRetry(conn -> {
-                List<ModAction> actions = new ArrayList<>();
-                String sql = "SELECT action, moderatorId, moderatorName, targetId, targetName, reason, timestamp, duration, count FROM moderation_analytics";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sql);
-                     ResultSet rs = pstmt.executeQuery()) {
-
-                    while (rs.next()) {
-                        ModAction action = new ModAction(
-                                ActionType.valueOf(rs.getString("action")),
-                                rs.getString("moderatorId") != null ? rs.getString("moderatorId") : "unknown",
-                                rs.getString("moderatorName") != null ? rs.getString("moderatorName") : "Unknown",
-                                rs.getString("targetId") != null ? rs.getString("targetId") : "0",
-                                rs.getString("targetName") != null ? rs.getString("targetName") : "Unknown",
-                                rs.getString("reason") != null ? rs.getString("reason") : "",
-                                rs.getLong("timestamp"),
-                                rs.getInt("duration"),
-                                rs.getInt("count")
-                        );
-                        actions.add(action);
-                    }
-                }
-                return actions;
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
+    private ModAction mapModAction(ResultSet rs) throws SQLException {
+        return new ModAction(
+                rs.getLong("guildId"),
+                ActionType.valueOf(rs.getString("action")),
+                rs.getString("moderatorId") != null ? rs.getString("moderatorId") : "unknown",
+                rs.getString("moderatorName") != null ? rs.getString("moderatorName") : "Unknown",
+                rs.getString("targetId") != null ? rs.getString("targetId") : "0",
+                rs.getString("targetName") != null ? rs.getString("targetName") : "Unknown",
+                rs.getString("reason") != null ? rs.getString("reason") : "",
+                rs.getLong("timestamp"),
+                rs.getInt("duration"),
+                rs.getInt("count")
+        );
     }
 
-    public void saveMuteRoleIdToDatabase(String muteRoleId) {
-        try {
-            DatabaseManager.executeWithRetry(conn -> {
-                String sql = "INSERT OR REPLACE INTO bot_settings (key, value) VALUES ('muteRoleId', ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, muteRoleId);
-                    pstmt.executeUpdate();
+    public CompletableFuture<Void> setMuteRoleIdAsync(long guildId, String muteRoleId) {
+        return DatabaseManager.executeAsync(DatabaseManager.OperationType.WRITE, conn -> {
+            writeGuildSetting(conn, guildId, GuildSettings.MUTE_ROLE_KEY, muteRoleId);
+            return null;
+        });
+    }
 
-                    this.muteRoleId = muteRoleId;
-                    System.out.println("Saved muteRoleId to database: " + muteRoleId);
-                }
-                return null;
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
+    // The cache is only updated once the row is written, so a failed save never shows up as the active setting.
+    private void writeGuildSetting(Connection conn, long guildId, String key, String value) throws SQLException {
+        PreparedStatement pstmt = DatabaseManager.prepareCached(conn, UPSERT_GUILD_SETTING_SQL);
+        pstmt.setLong(1, guildId);
+        pstmt.setString(2, key);
+        pstmt.setString(3, value);
+        pstmt.executeUpdate();
+
+        synchronized (guildSettings) {
+            GuildSettings current = guildSettings.getOrDefault(guildId, new GuildSettings(guildId, null));
+            guildSettings.put(guildId, current.withValue(key, value));
         }
+        System.out.println("Saved " + key + " for guild " + guildId + ": " + value);
     }
 
-    public void loadMuteRoleIdFromDatabase() {
+    public void loadGuildSettingsFromDatabase() {
         try {
-            String result = DatabaseManager.executeWithRetry(conn -> {
-                String sql = "SELECT value FROM bot_settings WHERE key = 'muteRoleId'";
-                try (PreparedStatement pstmt = conn.prepareStatement(sql);
+            int rows = DatabaseManager.executeReadWithRetry(conn -> {
+                int count = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT guildId, key, value FROM guild_settings");
                      ResultSet rs = pstmt.executeQuery()) {
-
-                    if (rs.next()) {
-                        return rs.getString("value");
+                    while (rs.next()) {
+                        long guildId = rs.getLong("guildId");
+                        GuildSettings current = guildSettings.getOrDefault(guildId, new GuildSettings(guildId, null));
+                        guildSettings.put(guildId, current.withValue(rs.getString("key"), rs.getString("value")));
+                        count++;
                     }
                 }
-                return null;
+                return count;
             });
-
-            if (result != null) {
-                muteRoleId = result;
-                System.out.println("Loaded muteRoleId from database: " + muteRoleId);
-            } else {
-                muteRoleId = null;
-                System.out.println("muteRoleId not found in database, using null.");
-            }
+            System.out.println("Loaded " + rows + " guild settings for " + guildSettings.size() + " guilds");
         } catch (Exception e) {
             e.printStackTrace();
-            muteRoleId = null;
         }
     }
 
@@ -268,23 +289,10 @@ public class DataService {
         }
     }
 
-    public void saveCommandLog(String userId, String userName, String commandName) {
-        try {
-            DatabaseManager.executeWithRetry(conn -> {
-                String sql = "INSERT INTO command_logs (userId, userName, commandName, timestamp) VALUES (?, ?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                    pstmt.setString(1, userId);
-                    pstmt.setString(2, userName);
-                    pstmt.setString(3, commandName);
-                    pstmt.setLong(4, System.currentTimeMillis());
-
-                    pstmt.executeUpdate();
-                    System.out.println("Logged command: " + commandName + " by " + userName);
-                }
-                return null;
-            });
-        } catch (Exception e) {
-            System.err.println("Failed to log command: " + e.getMessage());
-        }
+    public void saveCommandLog(Guild guild, String userId, String userName, String commandName) {
+        writeQueue.enqueue(WriteBehindQueue.WriteKind.COMMAND_LOG, INSERT_COMMAND_LOG_SQL,
+                guild != null ? guild.getIdLong() : 0L,
+                userId, userName, commandName, System.currentTimeMillis());
+        System.out.println("Logged command: " + commandName + " by " + userName);
     }
 }
\ No newline at end of file
@@ -7,63 +7,71 @@ import java.io.FileInputStream;
 import java.io.ObjectInputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
 
 public class DatabaseInitializer {
     public static void initializeDatabase() {
-        try (Connection conn = DatabaseManager.getConnection()) {
-
-            String warningsTable = "CREATE TABLE IF NOT EXISTS warnings (" +
-                    "id SERIAL PRIMARY KEY," +
-                    "userId TEXT NOT NULL," +
-                    "moderatorId TEXT," +
-                    "reason TEXT," +
-                    "timestamp BIGINT" +
-                    ")";
+        try {
+            DatabaseManager.executeWithRetry(DatabaseInitializer::createTables);
+            System.out.println("[DatabaseInitializer] Database tables initialized.");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not initialize database tables: " + e.getMessage(), e);
+        }
 
-            String analyticsTable = "CREATE TABLE IF NOT EXISTS moderation_analytics (" +
-                    "id SERIAL PRIMARY KEY," +
-                    "action TEXT NOT NULL," +
-                    "moderatorId TEXT," +
-                    "moderatorName TEXT," +
-                    "targetId TEXT," +
-                    "targetName TEXT," +
-                    "reason TEXT," +
-                    "timestamp BIGINT," +
-                    "duration BIGINT," +
-                    "count INTEGER" +
-                    ")";
+        SchemaMigrator.migrate();
+    }
 
-            String settingsTable = "CREATE TABLE IF NOT EXISTS bot_settings (" +
-                    "key TEXT PRIMARY KEY," +
-                    "value TEXT" +
-                    ")";
+    private static Void createTables(Connection conn) throws SQLException {
+        String warningsTable = "CREATE TABLE IF NOT EXISTS warnings (" +
+                "id SERIAL PRIMARY KEY," +
+                "userId TEXT NOT NULL," +
+                "moderatorId TEXT," +
+                "reason TEXT," +
+                "timestamp BIGINT" +
+                ")";
 
-            String guildsTable = "CREATE TABLE IF NOT EXISTS guilds (" +
-                    "guildId TEXT PRIMARY KEY," +
-                    "guildName TEXT," +
-                    "joinedTimestamp BIGINT" +
-                    ")";
+        String analyticsTable = "CREATE TABLE IF NOT EXISTS moderation_analytics (" +
+                "id SERIAL PRIMARY KEY," +
+                "action TEXT NOT NULL," +
+                "moderatorId TEXT," +
+                "moderatorName TEXT," +
+                "targetId TEXT," +
+                "targetName TEXT," +
+                "reason TEXT," +
+                "timestamp BIGINT," +
+                "duration BIGINT," +
+                "count INTEGER" +
+                ")";
 
-            String commandLogsTable = "CREATE TABLE IF NOT EXISTS command_logs (" +
-                    "id SERIAL PRIMARY KEY," +
-                    "userId TEXT," +
-                    "userName TEXT," +
-                    "commandName TEXT," +
-                    "timestamp BIGINT" +
-                    ")";
+        String settingsTable = "CREATE TABLE IF NOT EXISTS bot_settings (" +
+                "key TEXT PRIMARY KEY," +
+                "value TEXT" +
+                ")";
 
-            conn.createStatement().execute(warningsTable);
-            conn.createStatement().execute(analyticsTable);
-            conn.createStatement().execute(settingsTable);
-            conn.createStatement().execute(guildsTable);
-            conn.createStatement().execute(commandLogsTable);
+        String guildsTable = "CREATE TABLE IF NOT EXISTS guilds (" +
+                "guildId TEXT PRIMARY KEY," +
+                "guildName TEXT," +
+                "joinedTimestamp BIGINT" +
+                ")";
 
-            System.out.println("[DatabaseInitializer] Database tables initialized.");
+        String commandLogsTable = "CREATE TABLE IF NOT EXISTS command_logs (" +
+                "id SERIAL PRIMARY KEY," +
+                "userId TEXT," +
+                "userName TEXT," +
+                "commandName TEXT," +
+                "timestamp BIGINT" +
+                ")";
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(warningsTable);
+            stmt.execute(analyticsTable);
+            stmt.execute(settingsTable);
+            stmt.execute(guildsTable);
+            stmt.execute(commandLogsTable);
         }
+        return null;
     }
-}
\ No newline at end of file
+}
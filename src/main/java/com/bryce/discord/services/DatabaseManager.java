@@ -1,10 +1,36 @@
 package com.bryce.discord.services;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DatabaseManager {
@@ -13,90 +39,423 @@ public class DatabaseManager {
     private static final Dotenv dotenv = Dotenv.load();
     private static final String URL = dotenv.get("DATABASE_PATH");
 
+    private static final int READER_POOL_SIZE = 4;
+    private static final long BORROW_TIMEOUT_SECONDS = 10;
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final long BACKUP_TIMEOUT_SECONDS = 120;
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final long RETRY_BASE_DELAY_MS = 50;
+    private static final long RETRY_MAX_DELAY_MS = 2000;
 
     private static final ReentrantLock lock = new ReentrantLock();
     private static volatile boolean isInitialized = false;
+    private static volatile boolean isShutdown = false;
 
-    public static Connection getConnection() throws SQLException {
+    // One writer keeps SQLite writes serialized in-process; readers run concurrently under WAL.
+    private static final BlockingQueue<Connection> writerPool = new ArrayBlockingQueue<>(1);
+    private static final BlockingQueue<Connection> readerPool = new ArrayBlockingQueue<>(READER_POOL_SIZE);
+    private static final ThreadLocal<Connection> heldWriter = new ThreadLocal<>();
+    private static final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
 
-        if (!isInitialized) {
-            initializeDatabase();
-        }
+    private static final LongAdder writerBorrows = new LongAdder();
+    private static final LongAdder readerBorrows = new LongAdder();
+    private static final LongAdder totalWaitNanos = new LongAdder();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+    private static final LongAdder replacedConnections = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
 
-        return DriverManager.getConnection(URL);
-    }
+    private static final ExecutorService dbExecutor = Executors.newFixedThreadPool(READER_POOL_SIZE + 1,
+            daemonThreads("db-worker"));
+    private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("db-retry"));
 
-    private static void initializeDatabase() {
+    // Opening the writer switches the file to WAL; a failure leaves the pool uninitialized so the next borrow
+    // retries instead of every caller timing out against an empty pool.
+    private static void initializeDatabase() throws SQLException {
         lock.lock();
         try {
             if (isInitialized) return;
+            if (URL == null || URL.isEmpty()) {
+                throw new SQLException("DATABASE_PATH is not set");
+            }
 
-            try (Connection testConn = DriverManager.getConnection(URL)) {
-                try (Statement stmt = testConn.createStatement()) {
-
+            List<Connection> readers = new ArrayList<>(READER_POOL_SIZE);
+            Connection writer = null;
+            try {
+                writer = openPooledConnection(false);
+                try (Statement stmt = writer.createStatement()) {
                     stmt.execute("SELECT 1");
-                    System.out.println("[DatabaseManager] Database connection established successfully");
+                }
+                for (int i = 0; i < READER_POOL_SIZE; i++) {
+                    readers.add(openPooledConnection(true));
                 }
             } catch (SQLException e) {
-                System.err.println("[DatabaseManager] Database connection test failed: " + e.getMessage());
-
-                handleDatabaseLock();
+                if (writer != null) retire(writer);
+                readers.forEach(DatabaseManager::retire);
+                System.err.println("[DatabaseManager] ❌ Failed to open pooled connections: " + e.getMessage());
+                System.err.println("[DatabaseManager] Check DATABASE_PATH and that no other process holds a lock on the database");
+                throw e;
             }
 
+            writerPool.add(writer);
+            readerPool.addAll(readers);
             isInitialized = true;
+            System.out.println("[DatabaseManager] Connection pool ready (1 writer, " + READER_POOL_SIZE + " readers)");
         } finally {
             lock.unlock();
         }
     }
 
-    private static void handleDatabaseLock() {
-        System.out.println("[DatabaseManager] Attempting to resolve database lock...");
+    private static Connection openPooledConnection(boolean readOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection(URL);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        statementCaches.put(conn, new StatementCache(conn, STATEMENT_CACHE_SIZE));
+        return conn;
+    }
 
+    private static Connection borrow(BlockingQueue<Connection> pool, LongAdder borrows, boolean readOnly) throws SQLException {
+        if (!isInitialized) {
+            initializeDatabase();
+        }
+        if (isShutdown) {
+            throw new SQLException("Database pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        Connection conn;
         try {
-            Thread.sleep(2000);
+            conn = pool.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+
+        if (conn == null) {
+            throw new SQLException("Timed out waiting " + BORROW_TIMEOUT_SECONDS + "s for a database connection");
         }
 
-        try (Connection conn = DriverManager.getConnection(URL + "?journal_mode=DELETE")) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute("PRAGMA journal_mode = WAL");
-                System.out.println("[DatabaseManager] Database lock resolved");
+        borrows.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (conn.isClosed()) {
+            retire(conn);
+            try {
+                conn = openPooledConnection(readOnly);
+                replacedConnections.increment();
+            } catch (SQLException e) {
+                pool.offer(conn);
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    private static void release(BlockingQueue<Connection> pool, Connection conn, boolean readOnly) {
+        try {
+            if (conn.isClosed()) {
+                throw new SQLException("connection closed while borrowed");
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            System.err.println("[DatabaseManager] Could not resolve database lock: " + e.getMessage());
-            System.err.println("[DatabaseManager] You may need to restart the application or check for other processes using the database");
+            System.err.println("[DatabaseManager] Replacing broken pooled connection: " + e.getMessage());
+            retire(conn);
+            try {
+                conn = openPooledConnection(readOnly);
+                replacedConnections.increment();
+            } catch (SQLException reopen) {
+                // Keep the closed handle in the pool so the next borrow retries the reopen.
+                System.err.println("[DatabaseManager] Could not reopen pooled connection: " + reopen.getMessage());
+            }
         }
+
+        pool.offer(conn);
     }
 
     public static <T> T executeWithRetry(DatabaseOperation<T> operation) throws SQLException {
-        int maxRetries = 3;
-        SQLException lastException = null;
+        return executeWithRetry(OperationType.WRITE, operation);
+    }
 
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try (Connection conn = getConnection()) {
-                return operation.execute(conn);
+    public static <T> T executeReadWithRetry(DatabaseOperation<T> operation) throws SQLException {
+        return executeWithRetry(OperationType.READ, operation);
+    }
+
+    public static <T> T executeWithRetry(OperationType type, DatabaseOperation<T> operation) throws SQLException {
+        Connection reentrant = heldWriter.get();
+        if (reentrant != null) {
+            return operation.execute(reentrant);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeOnce(type, operation);
             } catch (SQLException e) {
-                lastException = e;
-                if (e.getMessage().contains("database is locked") && attempt < maxRetries) {
-                    System.err.println("[DatabaseManager] Database locked, retrying... (attempt " + attempt + "/" + maxRetries + ")");
-                    try {
-                        Thread.sleep(1000 * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new SQLException("Interrupted during retry", ie);
-                    }
-                } else {
+                if (!isRetryable(e) || attempt >= type.maxAttempts) {
                     throw e;
                 }
+                // Pooled connections set busy_timeout, so SQLite has already waited before reporting BUSY.
+                logRetry(type, attempt, 0, e);
+            }
+        }
+    }
+
+    public static <T> CompletableFuture<T> executeAsync(OperationType type, DatabaseOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submitAttempt(type, operation, future, 1);
+        return future;
+    }
+
+    // Consistent copy of the live database through SQLite's online backup on a reader connection. The backup restarts
+    // whenever another connection commits between its steps, so it is run inside one read transaction: every step
+    // reads the same snapshot, the writer keeps committing to the WAL, and the copy takes time in proportion to the
+    // database size however busy the writer is.
+    public static void backupTo(Path target) throws SQLException {
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        AtomicBoolean abandoned = new AtomicBoolean();
+        CompletableFuture<Void> copy = executeAsync(OperationType.READ, conn -> {
+            copyInReadTransaction(conn, partial);
+            try {
+                if (abandoned.get()) {
+                    Files.deleteIfExists(partial);
+                } else {
+                    Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not move backup into place: " + e.getMessage(), e);
+            }
+            return null;
+        });
+        try {
+            copy.get(BACKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // A backup step cannot be interrupted; the copy keeps its reader until it ends and then deletes its output.
+            abandoned.set(true);
+            throw new SQLException("Backup did not finish within " + BACKUP_TIMEOUT_SECONDS + "s, giving up");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                    : new SQLException("Backup failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            abandoned.set(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for backup", e);
+        }
+    }
+
+    private static void copyInReadTransaction(Connection conn, Path target) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            // The first read opens the transaction and fixes the snapshot the backup steps read from.
+            try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master")) {
+                rs.next();
             }
+            stmt.execute("backup to \"" + target.toAbsolutePath() + "\"");
+        } finally {
+            conn.rollback();
+            conn.setAutoCommit(true);
         }
+    }
+
+    private static <T> void submitAttempt(OperationType type, DatabaseOperation<T> operation,
+                                          CompletableFuture<T> future, int attempt) {
+        try {
+            dbExecutor.execute(() -> {
+                try {
+                    future.complete(executeOnce(type, operation));
+                } catch (SQLException e) {
+                    if (isRetryable(e) && attempt < type.maxAttempts && !isShutdown) {
+                        long delay = backoffMillis(attempt);
+                        logRetry(type, attempt, delay, e);
+                        retryScheduler.schedule(() -> submitAttempt(type, operation, future, attempt + 1),
+                                delay, TimeUnit.MILLISECONDS);
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLException("Database executor has been shut down", e));
+        }
+    }
+
+    private static <T> T executeOnce(OperationType type, DatabaseOperation<T> operation) throws SQLException {
+        BlockingQueue<Connection> pool = type.readOnly ? readerPool : writerPool;
+        LongAdder borrows = type.readOnly ? readerBorrows : writerBorrows;
 
-        throw lastException;
+        Connection conn = borrow(pool, borrows, type.readOnly);
+        if (!type.readOnly) {
+            heldWriter.set(conn);
+        }
+        try {
+            return operation.execute(conn);
+        } finally {
+            if (!type.readOnly) {
+                heldWriter.remove();
+            }
+            release(pool, conn, type.readOnly);
+        }
+    }
+
+    static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                // sqlite-jdbc reports the (possibly extended) SQLite result code; the low byte is the primary code.
+                int primaryCode = ((SQLException) t).getErrorCode() & 0xFF;
+                if (primaryCode == SQLITE_BUSY || primaryCode == SQLITE_LOCKED) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(RETRY_MAX_DELAY_MS, RETRY_BASE_DELAY_MS << Math.min(attempt - 1, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static void logRetry(OperationType type, int attempt, long delay, SQLException e) {
+        retries.increment();
+        System.err.println("[DatabaseManager] " + type + " operation busy/locked (code " + e.getErrorCode() +
+                "), retrying in " + delay + "ms (attempt " + attempt + "/" + type.maxAttempts + ")");
+    }
+
+    public static void shutdown() {
+        lock.lock();
+        try {
+            if (isShutdown) return;
+            isShutdown = true;
+
+            retryScheduler.shutdown();
+            dbExecutor.shutdown();
+            try {
+                if (!dbExecutor.awaitTermination(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    dbExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dbExecutor.shutdownNow();
+            }
+
+            if (isInitialized) {
+                closePool(writerPool, 1);
+                closePool(readerPool, READER_POOL_SIZE);
+            }
+
+            System.out.println("[DatabaseManager] Connection pool closed. " + getPoolStats());
+            System.out.println("[DatabaseManager] " + StatementCache.getStats());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closePool(BlockingQueue<Connection> pool, int size) {
+        for (int i = 0; i < size; i++) {
+            try {
+                Connection conn = pool.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (conn == null) {
+                    System.err.println("[DatabaseManager] Gave up waiting for a borrowed connection during shutdown");
+                    return;
+                }
+                retire(conn);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public static PreparedStatement prepareCached(Connection conn, String sql) throws SQLException {
+        StatementCache cache = statementCaches.get(conn);
+        if (cache == null) {
+            throw new SQLException("prepareCached requires a pooled connection");
+        }
+        return cache.prepare(sql);
+    }
+
+    private static void retire(Connection conn) {
+        StatementCache cache = statementCaches.remove(conn);
+        if (cache != null) {
+            cache.closeAll();
+        }
+        closeQuietly(conn);
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("[DatabaseManager] Error closing connection: " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static long getWriterBorrowCount() {
+        return writerBorrows.sum();
+    }
+
+    public static long getReaderBorrowCount() {
+        return readerBorrows.sum();
+    }
+
+    public static long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum());
+    }
+
+    public static long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    public static String getPoolStats() {
+        long borrows = writerBorrows.sum() + readerBorrows.sum();
+        double avgWaitMs = borrows == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / borrows;
+        return String.format("writer borrows=%d, reader borrows=%d, avg wait=%.2fms, max wait=%dms, idle readers=%d, replaced=%d, retries=%d",
+                writerBorrows.sum(), readerBorrows.sum(), avgWaitMs, getMaxWaitMillis(),
+                readerPool.size(), replacedConnections.sum(), retries.sum());
+    }
+
+    public enum OperationType {
+        READ(true, 4),
+        WRITE(false, 5),
+        BATCH_WRITE(false, 8);
+
+        private final boolean readOnly;
+        private final int maxAttempts;
+
+        OperationType(boolean readOnly, int maxAttempts) {
+            this.readOnly = readOnly;
+            this.maxAttempts = maxAttempts;
+        }
     }
 
     @FunctionalInterface
     public interface DatabaseOperation<T> {
         T execute(Connection conn) throws SQLException;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package com.bryce.discord.services;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.utils.FileUpload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EvidenceService {
+    private static final int DOWNLOAD_THREADS = 2;
+    private static final int MAX_QUEUED_DOWNLOADS = 16;
+    private static final long MAX_EVIDENCE_BYTES = 8L * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    // Re-hosted CDN links are signed and expire, so cached ones are only reused well inside that window.
+    private static final long REHOST_TTL_MS = TimeUnit.HOURS.toMillis(12);
+    private static final int MAX_REHOSTED = 256;
+
+    private final ThreadPoolExecutor downloadExecutor;
+    private final Map<Long, Rehosted> rehosted = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Rehosted> eldest) {
+            return size() > MAX_REHOSTED;
+        }
+    };
+
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder rehostHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public EvidenceService() {
+        AtomicInteger counter = new AtomicInteger();
+        downloadExecutor = new ThreadPoolExecutor(DOWNLOAD_THREADS, DOWNLOAD_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_DOWNLOADS), runnable -> {
+                    Thread thread = new Thread(runnable, "evidence-download-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Sends the embed with the evidence in the same message. Downloads stream to a temp file on a bounded pool;
+    // if the evidence is too large, the pool is saturated or the download fails, the embed links the original instead.
+    public CompletableFuture<Message> sendWithEvidence(MessageChannel channel, EmbedBuilder embed, Message.Attachment evidence) {
+        if (evidence == null) {
+            return channel.sendMessageEmbeds(embed.build()).submit();
+        }
+
+        String cachedUrl = cachedRehost(evidence.getIdLong());
+        if (cachedUrl != null) {
+            rehostHits.increment();
+            return channel.sendMessageEmbeds(withLinkedEvidence(embed, evidence, cachedUrl).build()).submit();
+        }
+
+        long uploadLimit = channel instanceof GuildChannel
+                ? ((GuildChannel) channel).getGuild().getMaxFileSize() : MAX_EVIDENCE_BYTES;
+        if (evidence.getSize() > Math.min(MAX_EVIDENCE_BYTES, uploadLimit)) {
+            embed.addField("Evidence", "[" + evidence.getFileName() + "](" + evidence.getUrl() + ") (too large to re-host)", false);
+            return channel.sendMessageEmbeds(embed.build()).submit();
+        }
+
+        return download(evidence).handle((file, error) -> {
+            if (error != null) {
+                System.err.println("[EvidenceService] Could not download evidence " + evidence.getId() + ": " + error.getMessage());
+                embed.addField("Evidence", "[" + evidence.getFileName() + "](" + evidence.getUrl() + ")", false);
+                return channel.sendMessageEmbeds(embed.build()).submit();
+            }
+
+            String fileName = uploadName(evidence);
+            if (evidence.isImage()) {
+                embed.setImage("attachment://" + fileName);
+            } else {
+                embed.addField("Evidence", evidence.getFileName() + " (attached)", false);
+            }
+            return channel.sendMessageEmbeds(embed.build())
+                    .addFiles(FileUpload.fromData(file.toFile(), fileName))
+                    .submit()
+                    .whenComplete((message, sendError) -> {
+                        deleteQuietly(file);
+                        if (message != null && !message.getAttachments().isEmpty()) {
+                            cacheRehost(evidence.getIdLong(), message.getAttachments().get(0).getUrl());
+                        }
+                    });
+        }).thenCompose(future -> future);
+    }
+
+    private EmbedBuilder withLinkedEvidence(EmbedBuilder embed, Message.Attachment evidence, String url) {
+        if (evidence.isImage()) {
+            embed.setImage(url);
+        } else {
+            embed.addField("Evidence", "[" + evidence.getFileName() + "](" + url + ")", false);
+        }
+        return embed;
+    }
+
+    private CompletableFuture<Path> download(Message.Attachment evidence) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        try {
+            downloadExecutor.execute(() -> {
+                try {
+                    future.complete(downloadToTempFile(evidence));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(new IOException("too many evidence downloads queued", e));
+        }
+        return future;
+    }
+
+    private Path downloadToTempFile(Message.Attachment evidence) throws IOException {
+        Path file = Files.createTempFile("evidence-" + evidence.getId() + "-", ".tmp");
+        long copied = 0;
+        try (InputStream in = evidence.getProxy().download().join();
+             OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                copied += read;
+                if (copied > MAX_EVIDENCE_BYTES) {
+                    throw new IOException("evidence exceeds " + MAX_EVIDENCE_BYTES + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        downloads.increment();
+        downloadedBytes.add(copied);
+        return file;
+    }
+
+    private static String uploadName(Message.Attachment evidence) {
+        String name = evidence.getFileName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "") : "";
+        return "evidence-" + evidence.getId() + (extension.isEmpty() ? "" : "." + extension);
+    }
+
+    private String cachedRehost(long attachmentId) {
+        synchronized (rehosted) {
+            Rehosted entry = rehosted.get(attachmentId);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.createdAt > REHOST_TTL_MS) {
+                rehosted.remove(attachmentId);
+                return null;
+            }
+            return entry.url;
+        }
+    }
+
+    private void cacheRehost(long attachmentId, String url) {
+        synchronized (rehosted) {
+            rehosted.put(attachmentId, new Rehosted(url, System.currentTimeMillis()));
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("[EvidenceService] Could not delete temp file " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Downloads already running get a few seconds to finish; queued ones are dropped and their embeds never sent.
+    public void shutdown() {
+        downloadExecutor.shutdown();
+        try {
+            if (!downloadExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("[EvidenceService] Evidence downloads still running after 5s, interrupting");
+                downloadExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            downloadExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[EvidenceService] " + getStats());
+    }
+
+    public String getStats() {
+        return String.format("evidence downloads=%d (%d bytes), re-host cache hits=%d, rejected=%d, queued=%d",
+                downloads.sum(), downloadedBytes.sum(), rehostHits.sum(), rejected.sum(), downloadExecutor.getQueue().size());
+    }
+
+    private static final class Rehosted {
+        private final String url;
+        private final long createdAt;
+
+        private Rehosted(String url, long createdAt) {
+            this.url = url;
+            this.createdAt = createdAt;
+        }
+    }
+}
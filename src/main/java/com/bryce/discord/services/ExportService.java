@@ -0,0 +1,288 @@
+package com.bryce.discord.services;
+
+import com.bryce.discord.utils.PartFileOutputStream;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+public class ExportService {
+    private static final Path EXPORT_DIR = Paths.get("exports");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Only these tables and columns can be exported; the table name comes from a fixed command choice list.
+    private static final Map<String, List<String>> TABLE_COLUMNS = Map.of(
+            "warnings", List.of("id", "guildId", "userId", "moderatorId", "reason", "timestamp"),
+            "moderation_analytics", List.of("id", "guildId", "action", "moderatorId", "moderatorName",
+                    "targetId", "targetName", "reason", "timestamp", "duration", "count"),
+            "command_logs", List.of("id", "guildId", "userId", "userName", "commandName", "timestamp")
+    );
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // One export at a time; each one streams a whole table or database file and would only compete with itself.
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "export-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static boolean isExportableTable(String table) {
+        return TABLE_COLUMNS.containsKey(table);
+    }
+
+    // Takes an online snapshot and gzips it into parts of at most partSize bytes; the live file is never read.
+    public CompletableFuture<ExportResult> exportDatabase(long partSize) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            String name = "modbot-" + System.currentTimeMillis();
+            Path snapshot = EXPORT_DIR.resolve(name + ".db");
+            PartFileOutputStream parts = null;
+            boolean finished = false;
+            try {
+                Files.createDirectories(EXPORT_DIR);
+                DatabaseManager.backupTo(snapshot);
+
+                parts = new PartFileOutputStream(EXPORT_DIR.resolve(name + ".db.gz"), partSize);
+                try (InputStream in = Files.newInputStream(snapshot);
+                     GZIPOutputStream out = new GZIPOutputStream(parts, BUFFER_SIZE)) {
+                    in.transferTo(out);
+                }
+                ExportResult result = new ExportResult(parts.finish(), -1, Files.size(snapshot), parts.getTotalSize(), start);
+                finished = true;
+                return result;
+            } catch (IOException | SQLException e) {
+                throw new IllegalStateException("Database export failed: " + e.getMessage(), e);
+            } finally {
+                deleteQuietly(snapshot);
+                if (!finished) {
+                    discard(parts);
+                }
+            }
+        }, exportExecutor);
+    }
+
+    // Streams the guild's rows in [fromTimestamp, toTimestamp) straight from the cursor into a gzipped file,
+    // so memory use does not depend on how many rows match.
+    public CompletableFuture<ExportResult> exportTable(long guildId, String table, Format format,
+                                                      long fromTimestamp, long toTimestamp, long partSize) {
+        List<String> columns = TABLE_COLUMNS.get(table);
+        if (columns == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown table: " + table));
+        }
+        String sql = "SELECT " + String.join(", ", columns) + " FROM " + table +
+                " WHERE guildId = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            Path base = EXPORT_DIR.resolve(table + "-" + guildId + "-" + System.currentTimeMillis() + "." +
+                    format.extension + ".gz");
+            PartFileOutputStream[] attempt = new PartFileOutputStream[1];
+            boolean finished = false;
+            try {
+                Files.createDirectories(EXPORT_DIR);
+                ExportResult result = DatabaseManager.executeWithRetry(DatabaseManager.OperationType.READ, conn -> {
+                    // A retry starts over under the same base name, so drop whatever the failed attempt wrote;
+                    // a shorter second run would otherwise leave its extra parts behind.
+                    discard(attempt[0]);
+                    PartFileOutputStream parts = new PartFileOutputStream(base, partSize);
+                    attempt[0] = parts;
+                    long rows;
+                    long characters;
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setLong(1, guildId);
+                        pstmt.setLong(2, fromTimestamp);
+                        pstmt.setLong(3, toTimestamp);
+                        try (ResultSet rs = pstmt.executeQuery();
+                             CountingWriter writer = new CountingWriter(new BufferedWriter(new OutputStreamWriter(
+                                     new GZIPOutputStream(parts, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE))) {
+                            rows = format == Format.CSV ? writeCsv(rs, columns, writer) : writeNdjson(rs, columns, writer);
+                            characters = writer.count;
+                        }
+                        // Closing the writer above wrote the gzip trailer; only now are the parts complete.
+                        return new ExportResult(parts.finish(), rows, characters, parts.getTotalSize(), start);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                finished = true;
+                return result;
+            } catch (SQLException | UncheckedIOException | IOException e) {
+                throw new IllegalStateException("Export of " + table + " failed: " + e.getMessage(), e);
+            } finally {
+                if (!finished) {
+                    discard(attempt[0]);
+                }
+            }
+        }, exportExecutor);
+    }
+
+    private static long writeCsv(ResultSet rs, List<String> columns, Writer writer) throws SQLException, IOException {
+        writer.write(String.join(",", columns));
+        writer.write('\n');
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= columns.size(); i++) {
+                if (i > 1) writer.write(',');
+                String value = rs.getString(i);
+                if (value != null) {
+                    writer.write(csvField(value));
+                }
+            }
+            writer.write('\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private long writeNdjson(ResultSet rs, List<String> columns, Writer writer) throws SQLException, IOException {
+        long rows = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (rs.next()) {
+                generator.writeStartObject();
+                for (int i = 1; i <= columns.size(); i++) {
+                    generator.writeFieldName(columns.get(i - 1));
+                    Object value = rs.getObject(i);
+                    if (value instanceof Number) {
+                        generator.writeNumber(((Number) value).longValue());
+                    } else if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    public void cleanup(ExportResult result) {
+        for (Path part : result.getParts()) {
+            deleteQuietly(part);
+        }
+    }
+
+    private static void discard(PartFileOutputStream parts) {
+        if (parts == null) {
+            return;
+        }
+        try {
+            parts.close();
+        } catch (IOException e) {
+            System.err.println("[ExportService] Could not close export part: " + e.getMessage());
+        }
+        for (Path part : parts.getParts()) {
+            deleteQuietly(part);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("[ExportService] Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static final class CountingWriter extends Writer {
+        private final Writer delegate;
+        private long count;
+
+        private CountingWriter(Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            delegate.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    public static final class ExportResult {
+        private final List<Path> parts;
+        private final long rows;
+        private final long uncompressedSize;
+        private final long compressedBytes;
+        private final long elapsedMs;
+
+        private ExportResult(List<Path> parts, long rows, long uncompressedSize, long compressedBytes, long startNanos) {
+            this.parts = parts;
+            this.rows = rows;
+            this.uncompressedSize = uncompressedSize;
+            this.compressedBytes = compressedBytes;
+            this.elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        public List<Path> getParts() {
+            return parts;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getUncompressedSize() {
+            return uncompressedSize;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+}
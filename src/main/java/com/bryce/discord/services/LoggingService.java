@@ -1,91 +1,488 @@
 package com.bryce.discord.services;
 
 import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.utils.FileUpload;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 
 import java.awt.Color;
-import java.io.InputStream;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class LoggingService {
-    private final Map<String, TextChannel> logChannelCache = new ConcurrentHashMap<>();
+    // Discord accepts at most 10 embeds and 6000 embed characters per message.
+    private static final int MAX_EMBEDS_PER_MESSAGE = 10;
+    private static final int MAX_EMBED_CHARS_PER_MESSAGE = 6000;
+    private static final long FLUSH_WINDOW_MS = 1000;
+    private static final int SUMMARISE_LOW_PRIORITY_AT = 20;
+    private static final int MAX_QUEUED_PER_CHANNEL = 500;
+    private static final long NOTICE_LIFETIME_MS = 5000;
+    private static final long CREATE_DENIED_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long NOTICE_EDIT_DEBOUNCE_MS = 1500;
 
-    public TextChannel getLogChannel(Guild guild, String channelName) {
+    public enum Priority {
+        NORMAL,
+        LOW
+    }
+
+    private final SchedulerService scheduler;
+    private final Map<String, CompletableFuture<Long>> logChannelIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> creationDenied = new ConcurrentHashMap<>();
+    private final Map<Long, ChannelQueue> queues = new ConcurrentHashMap<>();
+    private final Map<NoticeKey, Notice> notices = new ConcurrentHashMap<>();
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder embedsSent = new LongAdder();
+    private final LongAdder summarised = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedSends = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final LongAdder noticeViolations = new LongAdder();
+    private final LongAdder noticeRequests = new LongAdder();
+
+    public LoggingService(SchedulerService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Resolves to the guild's log channel, creating it if missing, or to null if it cannot be found or created.
+    // Only the channel id is cached: concurrent callers share one lookup or create through the cached future, and the
+    // entity is fetched from JDA's cache on each use so it is never stale.
+    public CompletableFuture<TextChannel> resolveLogChannel(Guild guild, String channelName) {
         String cacheKey = guild.getId() + ":" + channelName;
-        if (logChannelCache.containsKey(cacheKey)) {
-            return logChannelCache.get(cacheKey);
+
+        Long deniedUntil = creationDenied.get(cacheKey);
+        if (deniedUntil != null) {
+            if (System.currentTimeMillis() < deniedUntil) {
+                return CompletableFuture.completedFuture(null);
+            }
+            creationDenied.remove(cacheKey, deniedUntil);
         }
 
-        TextChannel logChannel = guild.getTextChannelsByName(channelName, true).stream().findFirst().orElse(null);
-        if (logChannel != null) {
-            logChannelCache.put(cacheKey, logChannel);
-            return logChannel;
+        CompletableFuture<Long> channelId = logChannelIds.computeIfAbsent(cacheKey, key -> findOrCreate(guild, channelName, key));
+        return channelId.thenApply(id -> {
+            TextChannel channel = id != null ? guild.getTextChannelById(id) : null;
+            if (channel == null) {
+                // Creation failed or the channel vanished before the delete event arrived; resolve again next time.
+                logChannelIds.remove(cacheKey, channelId);
+            }
+            return channel;
+        });
+    }
+
+    private CompletableFuture<Long> findOrCreate(Guild guild, String channelName, String cacheKey) {
+        TextChannel existing = guild.getTextChannelsByName(channelName, true).stream().findFirst().orElse(null);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(existing.getIdLong());
         }
 
-        guild.createTextChannel(channelName).queue(newChannel -> {
-            String topic;
-            switch (channelName) {
-                case "staff-strikes":
-                    topic = "This channel logs all staff strike actions.";
-                    break;
-                case "moderation-logs":
-                    topic = "This channel logs all moderation actions (warn, mute, timeout, etc).";
-                    break;
-                default:
-                    topic = "Server logging channel.";
+        if (!guild.getSelfMember().hasPermission(Permission.MANAGE_CHANNEL)) {
+            denyCreation(guild, channelName, cacheKey, "missing Manage Channels permission");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String topic;
+        switch (channelName) {
+            case "staff-strikes":
+                topic = "This channel logs all staff strike actions.";
+                break;
+            case "moderation-logs":
+                topic = "This channel logs all moderation actions (warn, mute, timeout, etc).";
+                break;
+            default:
+                topic = "Server logging channel.";
+        }
+
+        System.out.println("[LoggingService] Creating log channel #" + channelName + " in " + guild.getName());
+        CompletableFuture<TextChannel> created;
+        try {
+            created = guild.createTextChannel(channelName).setTopic(topic).submit();
+        } catch (InsufficientPermissionException e) {
+            denyCreation(guild, channelName, cacheKey, e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        return created
+                .thenApply(channel -> (Long) channel.getIdLong())
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof InsufficientPermissionException ||
+                            (cause instanceof ErrorResponseException &&
+                                    ((ErrorResponseException) cause).getErrorResponse() == ErrorResponse.MISSING_PERMISSIONS)) {
+                        denyCreation(guild, channelName, cacheKey, cause.getMessage());
+                    } else {
+                        System.err.println("[LoggingService] Failed to create #" + channelName + " in " + guild.getName() + ": " + cause.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private void denyCreation(Guild guild, String channelName, String cacheKey, String reason) {
+        creationDenied.put(cacheKey, System.currentTimeMillis() + CREATE_DENIED_TTL_MS);
+        System.err.println("[LoggingService] Cannot create #" + channelName + " in " + guild.getName() + " (" + reason +
+                "), not retrying for " + (CREATE_DENIED_TTL_MS / 1000) + "s");
+    }
+
+    public void invalidateLogChannel(long guildId, long channelId) {
+        String prefix = guildId + ":";
+        logChannelIds.entrySet().removeIf(entry -> entry.getKey().startsWith(prefix) &&
+                Long.valueOf(channelId).equals(entry.getValue().getNow(null)));
+    }
+
+    public void invalidateGuild(long guildId) {
+        String prefix = guildId + ":";
+        logChannelIds.keySet().removeIf(key -> key.startsWith(prefix));
+        creationDenied.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public void logToChannel(Guild guild, String channelName, MessageChannel fallback, MessageEmbed embed) {
+        resolveLogChannel(guild, channelName).thenAccept(logChannel -> dispatch(logChannel != null ? logChannel : fallback, embed));
+    }
+
+    public void logModAction(Guild guild, String channelName, MessageEmbed embed) {
+        resolveLogChannel(guild, channelName).thenAccept(logChannel -> {
+            if (logChannel != null) {
+                dispatch(logChannel, embed);
             }
+        });
+    }
 
-            newChannel.getManager().setTopic(topic).queue(success -> {
-                logChannelCache.put(cacheKey, newChannel);
-            });
+    public void logAutoDelete(Guild guild, User author, MessageChannel channel, String reason) {
+        MessageEmbed embed = new EmbedBuilder()
+                .setTitle("🗑️ Message Auto-Deleted")
+                .setDescription(String.format("Message from **%s** (ID: %s) removed in %s",
+                        author.getName(), author.getId(), channel.getAsMention()))
+                .addField("Reason", reason, false)
+                .setColor(Color.ORANGE)
+                .setTimestamp(Instant.now())
+                .build();
+        resolveLogChannel(guild, ConfigService.MODERATION_LOG_CHANNEL_NAME).thenAccept(logChannel -> {
+            if (logChannel != null) {
+                dispatch(logChannel, embed, Priority.LOW);
+            }
         });
+    }
 
-        return null;
+    public void dispatch(MessageChannel channel, MessageEmbed embed) {
+        dispatch(channel, embed, Priority.NORMAL);
     }
 
-    public void logModAction(Guild guild, String channelName, MessageEmbed embed) {
-        TextChannel logChannel = getLogChannel(guild, channelName);
-        if (logChannel != null) {
-            logChannel.sendMessageEmbeds(embed).queue();
+    // Embeds are buffered per channel for FLUSH_WINDOW_MS and sent several to a message, with at most one send in
+    // flight per channel, so a raid produces a bounded queue here instead of a rate-limited backlog inside JDA.
+    // Once a channel falls behind, low-priority entries are only counted and go out as one summary embed.
+    public void dispatch(MessageChannel channel, MessageEmbed embed, Priority priority) {
+        long channelId = channel.getIdLong();
+        ChannelQueue queue = queues.computeIfAbsent(channelId, id -> new ChannelQueue());
+        boolean scheduleFlush;
+        synchronized (queue) {
+            queue.channel = channel;
+            int depth = queue.pending.size();
+            if (priority == Priority.LOW && depth >= SUMMARISE_LOW_PRIORITY_AT) {
+                String title = embed.getTitle() != null ? embed.getTitle() : "Other";
+                queue.summarised.merge(title, 1, Integer::sum);
+                summarised.increment();
+                if (!queue.behind) {
+                    queue.behind = true;
+                    System.out.println("[LoggingService] Log channel " + channelId + " is behind (" + depth +
+                            " queued), summarising low-priority entries");
+                }
+            } else if (depth >= MAX_QUEUED_PER_CHANNEL) {
+                dropped.increment();
+                System.err.println("[LoggingService] Log queue for channel " + channelId + " is full, dropped: " + embed.getTitle());
+                return;
+            } else {
+                queue.pending.add(embed);
+                maxDepth.accumulateAndGet(depth + 1, Math::max);
+            }
+            scheduleFlush = !queue.flushScheduled && !queue.sending;
+            if (scheduleFlush) {
+                queue.flushScheduled = true;
+            }
+        }
+        if (scheduleFlush) {
+            scheduleFlush(channelId, FLUSH_WINDOW_MS);
         }
     }
 
-    public void logModActionWithFile(Guild guild, String channelName, MessageEmbed embed,
-                                     InputStream fileData, String fileName) {
-        TextChannel logChannel = getLogChannel(guild, channelName);
-        if (logChannel != null) {
-            FileUpload fileUpload = FileUpload.fromData(fileData, fileName);
-            logChannel.sendMessageEmbeds(embed).queue(message -> {
-                logChannel.sendFiles(fileUpload).queue();
-            });
+    private void scheduleFlush(long channelId, long delayMs) {
+        try {
+            scheduler.schedule("log-flush", () -> flush(channelId), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The scheduler is stopping; shutdown() drains what is left.
         }
     }
 
-    public void sendWarningEmbed(TextChannel channel, String reason, Consumer<Void> callback) {
+    private void flush(long channelId) {
+        ChannelQueue queue = queues.get(channelId);
+        if (queue == null) return;
+
+        List<MessageEmbed> batch;
+        MessageChannel channel;
+        synchronized (queue) {
+            queue.flushScheduled = false;
+            batch = nextBatch(queue);
+            if (batch.isEmpty()) return;
+            queue.sending = true;
+            channel = queue.channel;
+        }
+
+        CompletableFuture<Message> send;
+        try {
+            send = channel.sendMessageEmbeds(batch).submit();
+        } catch (RuntimeException e) {
+            // Missing send or embed permissions are thrown here rather than failing the future.
+            send = CompletableFuture.failedFuture(e);
+        }
+
+        send.whenComplete((message, error) -> {
+            if (error != null) {
+                failedSends.increment();
+                System.err.println("[LoggingService] Failed to send " + batch.size() + " log embed(s) to channel " +
+                        channelId + ": " + error.getMessage());
+            } else {
+                messagesSent.increment();
+                embedsSent.add(batch.size());
+            }
+            boolean more;
+            synchronized (queue) {
+                queue.sending = false;
+                more = !queue.pending.isEmpty() || !queue.summarised.isEmpty();
+                if (more) {
+                    queue.flushScheduled = true;
+                } else {
+                    queue.behind = false;
+                }
+            }
+            if (more) {
+                // Back off after a failure so a channel the bot cannot post in does not spin through its queue.
+                scheduleFlush(channelId, error != null ? FLUSH_WINDOW_MS : 0);
+            }
+        });
+    }
+
+    // Caller holds the queue lock.
+    private static List<MessageEmbed> nextBatch(ChannelQueue queue) {
+        List<MessageEmbed> batch = new ArrayList<>(MAX_EMBEDS_PER_MESSAGE);
+        int characters = 0;
+        while (!queue.pending.isEmpty() && batch.size() < MAX_EMBEDS_PER_MESSAGE) {
+            MessageEmbed next = queue.pending.peek();
+            if (!batch.isEmpty() && characters + next.getLength() > MAX_EMBED_CHARS_PER_MESSAGE) break;
+            batch.add(queue.pending.poll());
+            characters += next.getLength();
+        }
+        if (batch.size() < MAX_EMBEDS_PER_MESSAGE && !queue.summarised.isEmpty()) {
+            MessageEmbed summary = buildSummary(queue.summarised);
+            if (batch.isEmpty() || characters + summary.getLength() <= MAX_EMBED_CHARS_PER_MESSAGE) {
+                batch.add(summary);
+                queue.summarised.clear();
+            }
+        }
+        return batch;
+    }
+
+    private static MessageEmbed buildSummary(Map<String, Integer> counts) {
+        StringBuilder description = new StringBuilder();
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            description.append("**").append(entry.getValue()).append("** × ").append(entry.getKey()).append('\n');
+            total += entry.getValue();
+        }
+        return new EmbedBuilder()
+                .setTitle("📋 " + total + " Log Entries Summarised")
+                .setDescription(description.toString())
+                .setFooter("Low-priority entries are summarised while the log channel is busy", null)
+                .setColor(Color.GRAY)
+                .setTimestamp(Instant.now())
+                .build();
+    }
+
+    // Sends everything still buffered without waiting for the flush window; JDA finishes queued requests on shutdown.
+    public void shutdown() {
+        for (ChannelQueue queue : queues.values()) {
+            synchronized (queue) {
+                List<MessageEmbed> batch;
+                while (!(batch = nextBatch(queue)).isEmpty()) {
+                    try {
+                        queue.channel.sendMessageEmbeds(batch).queue();
+                    } catch (RuntimeException e) {
+                        failedSends.increment();
+                        System.err.println("[LoggingService] Could not flush log channel " + queue.channel.getId() +
+                                " on shutdown, dropping " + (batch.size() + queue.pending.size()) + " embed(s): " + e.getMessage());
+                        queue.pending.clear();
+                        queue.summarised.clear();
+                        break;
+                    }
+                    messagesSent.increment();
+                    embedsSent.add(batch.size());
+                }
+            }
+        }
+        System.out.println("[LoggingService] " + getStats());
+        System.out.println("[LoggingService] " + getNoticeStats());
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ChannelQueue queue : queues.values()) {
+            synchronized (queue) {
+                depth += queue.pending.size();
+            }
+        }
+        return depth;
+    }
+
+    public String getStats() {
+        return String.format("log dispatcher queued=%d (max %d), messages=%d, embeds=%d, summarised=%d, dropped=%d, failed=%d",
+                getQueueDepth(), maxDepth.get(), messagesSent.sum(), embedsSent.sum(), summarised.sum(),
+                dropped.sum(), failedSends.sum());
+    }
+
+    // At most one notice per user per channel. Repeat violations bump a counter on the existing notice, edited at
+    // most once per debounce interval, and push its removal back to NOTICE_LIFETIME_MS after the latest violation.
+    public void sendViolationNotice(TextChannel channel, User user, String reason) {
+        NoticeKey key = new NoticeKey(channel.getIdLong(), user.getIdLong());
+        noticeViolations.increment();
+        while (true) {
+            Notice notice = notices.computeIfAbsent(key, k -> new Notice());
+            synchronized (notice) {
+                if (notice.closed) {
+                    continue;
+                }
+                notice.count++;
+                notice.reason = reason;
+                notice.expiresAt = System.currentTimeMillis() + NOTICE_LIFETIME_MS;
+
+                if (notice.message == null) {
+                    noticeRequests.increment();
+                    notice.message = channel.sendMessageEmbeds(buildNotice(user, reason, 1)).submit();
+                    notice.message.exceptionally(error -> {
+                        System.err.println("[LoggingService] Could not send violation notice: " + error.getMessage());
+                        return null;
+                    });
+                    scheduleNotice("notice-expire", () -> expireNotice(key, notice), NOTICE_LIFETIME_MS);
+                } else if (!notice.editPending) {
+                    notice.editPending = true;
+                    scheduleNotice("notice-edit", () -> editNotice(notice, user), NOTICE_EDIT_DEBOUNCE_MS);
+                }
+            }
+            return;
+        }
+    }
+
+    private void editNotice(Notice notice, User user) {
+        MessageEmbed embed;
+        synchronized (notice) {
+            notice.editPending = false;
+            if (notice.closed) return;
+            embed = buildNotice(user, notice.reason, notice.count);
+        }
+        notice.message.thenAccept(message -> {
+            if (message != null) {
+                noticeRequests.increment();
+                message.editMessageEmbeds(embed).queue(null, error -> {});
+            }
+        });
+    }
+
+    private void expireNotice(NoticeKey key, Notice notice) {
+        synchronized (notice) {
+            long remaining = notice.expiresAt - System.currentTimeMillis();
+            if (remaining > 0) {
+                scheduleNotice("notice-expire", () -> expireNotice(key, notice), remaining);
+                return;
+            }
+            notice.closed = true;
+            notices.remove(key, notice);
+        }
+        notice.message.thenAccept(message -> {
+            if (message != null) {
+                noticeRequests.increment();
+                message.delete().queue(null, error -> {});
+            }
+        });
+    }
+
+    private void scheduleNotice(String purpose, Runnable task, long delayMs) {
+        try {
+            scheduler.schedule(purpose, task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the notice is left for Discord to show until someone removes it.
+        }
+    }
+
+    private static MessageEmbed buildNotice(User user, String reason, int count) {
         EmbedBuilder embed = new EmbedBuilder()
                 .setTitle("⚠️ Warning")
-                .setDescription(reason)
+                .setDescription(user.getAsMention() + " " + reason)
                 .setColor(Color.ORANGE)
-                .setFooter("This message will self-destruct in 5 seconds", null)
+                .setFooter("This message will self-destruct " + (NOTICE_LIFETIME_MS / 1000) + " seconds after the last violation", null)
                 .setTimestamp(Instant.now());
+        if (count > 1) {
+            embed.addField("Messages removed", String.valueOf(count), true);
+        }
+        return embed.build();
+    }
+
+    public String getNoticeStats() {
+        return String.format("violation notices: %d violations, %d notice requests, %d active",
+                noticeViolations.sum(), noticeRequests.sum(), notices.size());
+    }
+
+    private static final class NoticeKey {
+        private final long channelId;
+        private final long userId;
+
+        private NoticeKey(long channelId, long userId) {
+            this.channelId = channelId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NoticeKey)) return false;
+            NoticeKey other = (NoticeKey) o;
+            return channelId == other.channelId && userId == other.userId;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = (channelId * 31 + userId) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class Notice {
+        private CompletableFuture<Message> message;
+        private String reason;
+        private int count;
+        private long expiresAt;
+        private boolean editPending;
+        private boolean closed;
+    }
 
-        channel.sendMessageEmbeds(embed.build())
-                .queue(message -> message.delete().queueAfter(5, java.util.concurrent.TimeUnit.SECONDS,
-                        success -> {
-                            if (callback != null) {
-                                callback.accept(null);
-                            }
-                        },
-                        error -> {
-                            if (callback != null) {
-                                callback.accept(null);
-                            }
-                        }));
+    private static final class ChannelQueue {
+        private final ArrayDeque<MessageEmbed> pending = new ArrayDeque<>();
+        private final Map<String, Integer> summarised = new LinkedHashMap<>();
+        private MessageChannel channel;
+        private boolean flushScheduled;
+        private boolean sending;
+        private boolean behind;
     }
 }
\ No newline at end of file
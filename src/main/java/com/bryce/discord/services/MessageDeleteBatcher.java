@@ -0,0 +1,88 @@
+package com.bryce.discord.services;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects rule-violation deletes per channel for a short window and removes them with purgeMessagesById,
+// which guild channels turn into bulk-delete requests of up to 100 messages.
+public class MessageDeleteBatcher {
+    private static final long BATCH_WINDOW_MS = 1000;
+
+    private final SchedulerService scheduler;
+    private final Map<Long, PendingDeletes> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder messagesQueued = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public MessageDeleteBatcher(SchedulerService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void delete(Message message) {
+        long channelId = message.getChannel().getIdLong();
+        PendingDeletes deletes = pending.computeIfAbsent(channelId, id -> new PendingDeletes());
+        boolean scheduleFlush;
+        synchronized (deletes) {
+            deletes.channel = message.getChannel();
+            deletes.messageIds.add(message.getId());
+            scheduleFlush = !deletes.flushScheduled;
+            deletes.flushScheduled = true;
+        }
+        messagesQueued.increment();
+
+        if (scheduleFlush) {
+            try {
+                scheduler.schedule("delete-batch", () -> flush(deletes), BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush(deletes);
+            }
+        }
+    }
+
+    private void flush(PendingDeletes deletes) {
+        List<String> ids;
+        MessageChannel channel;
+        synchronized (deletes) {
+            deletes.flushScheduled = false;
+            if (deletes.messageIds.isEmpty()) return;
+            ids = deletes.messageIds;
+            deletes.messageIds = new ArrayList<>();
+            channel = deletes.channel;
+        }
+
+        batchesSent.increment();
+        for (CompletableFuture<Void> future : channel.purgeMessagesById(ids)) {
+            future.exceptionally(error -> {
+                failures.increment();
+                System.err.println("[MessageDeleteBatcher] Failed to delete messages in " + channel.getName() + ": " + error.getMessage());
+                return null;
+            });
+        }
+    }
+
+    public void shutdown() {
+        pending.values().forEach(this::flush);
+        System.out.println("[MessageDeleteBatcher] " + getStats());
+    }
+
+    public String getStats() {
+        return String.format("queued deletes=%d, batches=%d, failures=%d",
+                messagesQueued.sum(), batchesSent.sum(), failures.sum());
+    }
+
+    private static final class PendingDeletes {
+        private List<String> messageIds = new ArrayList<>();
+        private MessageChannel channel;
+        private boolean flushScheduled;
+    }
+}
@@ -0,0 +1,183 @@
+package com.bryce.discord.services;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PermissionCache {
+    public static final int ADMIN = 1;
+    public static final int MODERATOR = 1 << 1;
+
+    private static final int ADMIN_KNOWN = 1 << 2;
+    private static final int MODERATOR_KNOWN = 1 << 3;
+
+    private final Map<MemberKey, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder stalePuts = new LongAdder();
+
+    public PermissionCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Returns 1 if the member has the permission, 0 if not, -1 if unknown or expired.
+    public int get(long guildId, long memberId, int permission) {
+        Entry entry = entries.get(new MemberKey(guildId, memberId));
+        if (entry == null || entry.expiresAt < System.currentTimeMillis() || (entry.flags & knownBit(permission)) == 0) {
+            misses.increment();
+            return -1;
+        }
+        hits.increment();
+        return (entry.flags & permission) != 0 ? 1 : 0;
+    }
+
+    // Read before computing a permission and pass it to put, so a result computed from roles that have since
+    // been invalidated is never cached.
+    public long generation() {
+        return generation.get();
+    }
+
+    // Every invalidation bumps the generation before it removes anything, so a put that lands after the removal
+    // sees the new generation on its second check and takes its entry back out.
+    public void put(long guildId, long memberId, int permission, boolean granted, long computedAt) {
+        if (generation.get() != computedAt) {
+            stalePuts.increment();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int flags = knownBit(permission) | (granted ? permission : 0);
+        MemberKey key = new MemberKey(guildId, memberId);
+        entries.merge(key, new Entry(flags, now + ttlMillis),
+                (old, fresh) -> old.expiresAt < now ? fresh : new Entry(old.flags & ~(permission | knownBit(permission)) | fresh.flags, old.expiresAt));
+        if (generation.get() != computedAt) {
+            entries.remove(key);
+            stalePuts.increment();
+            return;
+        }
+
+        if (entries.size() > maxSize) {
+            evict(now);
+        }
+    }
+
+    public void invalidate(long guildId, long memberId) {
+        generation.incrementAndGet();
+        if (entries.remove(new MemberKey(guildId, memberId)) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateGuild(long guildId) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> {
+            if (key.guildId != guildId) return false;
+            invalidations.increment();
+            return true;
+        });
+    }
+
+    public void invalidateMember(long memberId) {
+        generation.incrementAndGet();
+        entries.keySet().removeIf(key -> {
+            if (key.memberId != memberId) return false;
+            invalidations.increment();
+            return true;
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        int removed = entries.size();
+        entries.clear();
+        invalidations.add(removed);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    public String getStats() {
+        return String.format("permission cache size=%d/%d, hits=%d, misses=%d, hit rate=%.1f%%, evictions=%d, invalidations=%d, stale puts=%d",
+                entries.size(), maxSize, hits.sum(), misses.sum(), getHitRate() * 100, evictions.sum(), invalidations.sum(), stalePuts.sum());
+    }
+
+    // Drop expired entries first; if that is not enough, trim the ones closest to expiring down to 90% of the cap.
+    private synchronized void evict(long now) {
+        if (entries.size() <= maxSize) return;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt < now) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+
+        int target = maxSize - maxSize / 10;
+        int excess = entries.size() - target;
+        if (excess <= 0) return;
+
+        long[] expiries = entries.values().stream().mapToLong(e -> e.expiresAt).sorted().toArray();
+        long threshold = expiries[Math.min(excess, expiries.length) - 1];
+        Iterator<Entry> trim = entries.values().iterator();
+        while (trim.hasNext() && excess > 0) {
+            if (trim.next().expiresAt <= threshold) {
+                trim.remove();
+                evictions.increment();
+                excess--;
+            }
+        }
+    }
+
+    private static int knownBit(int permission) {
+        return permission == ADMIN ? ADMIN_KNOWN : MODERATOR_KNOWN;
+    }
+
+    private static final class MemberKey {
+        private final long guildId;
+        private final long memberId;
+
+        private MemberKey(long guildId, long memberId) {
+            this.guildId = guildId;
+            this.memberId = memberId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemberKey)) return false;
+            MemberKey other = (MemberKey) o;
+            return guildId == other.guildId && memberId == other.memberId;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = (guildId * 31 + memberId) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class Entry {
+        private final int flags;
+        private final long expiresAt;
+
+        private Entry(int flags, long expiresAt) {
+            this.flags = flags;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.bryce.discord.services;
+
+import com.bryce.discord.analytics.ActionType;
+import com.bryce.discord.models.ScheduledAction;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScheduledActionService {
+    private static final String INSERT_SQL = "INSERT OR REPLACE INTO scheduled_actions (guildId, action, targetId, roleId, createdAt, executeAt) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM scheduled_actions WHERE id = ?";
+    private static final String CANCEL_SQL = "DELETE FROM scheduled_actions WHERE guildId = ? AND targetId = ? AND action = ?";
+    private static final String SELECT_ALL_SQL = "SELECT id, guildId, action, targetId, roleId, createdAt, executeAt FROM scheduled_actions";
+    private static final String EXISTS_SQL = "SELECT 1 FROM scheduled_actions WHERE id = ?";
+
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long RETRY_BASE_MS = 30_000;
+    private static final long RETRY_MAX_MS = 15 * 60_000;
+    // Discord answers with these when the member, role or guild is gone; retrying cannot help.
+    private static final Set<ErrorResponse> PERMANENT_ERRORS = EnumSet.of(
+            ErrorResponse.UNKNOWN_MEMBER, ErrorResponse.UNKNOWN_USER, ErrorResponse.UNKNOWN_ROLE,
+            ErrorResponse.UNKNOWN_GUILD);
+
+    public interface Handler {
+        CompletableFuture<?> execute(JDA jda, ScheduledAction action);
+    }
+
+    // Thrown (or completed exceptionally) by handlers when the action can never succeed.
+    public static class PermanentFailure extends RuntimeException {
+        public PermanentFailure(String message) {
+            super(message);
+        }
+    }
+
+    private final DelayQueue<ScheduledAction> queue = new DelayQueue<>();
+    private final Map<ActionType, Handler> handlers = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    private volatile JDA jda;
+    private volatile boolean running = false;
+    private Thread worker;
+
+    public void registerHandler(ActionType actionType, Handler handler) {
+        handlers.put(actionType, handler);
+    }
+
+    // Rows are the source of truth; the queue only mirrors them, so pending actions survive restarts.
+    public synchronized void start(JDA jda) {
+        if (running) return;
+        this.jda = jda;
+
+        int loaded = 0;
+        int overdue = 0;
+        try {
+            List<ScheduledAction> pending = DatabaseManager.executeReadWithRetry(ScheduledActionService::loadPending);
+            long now = System.currentTimeMillis();
+            for (ScheduledAction action : pending) {
+                if (!enqueue(action)) continue;
+                loaded++;
+                if (action.getExecuteAt() <= now) overdue++;
+            }
+        } catch (SQLException e) {
+            System.err.println("[ScheduledActionService] ❌ Could not load pending actions: " + e.getMessage());
+        }
+
+        running = true;
+        worker = new Thread(this::runLoop, "Scheduled-Actions");
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("[ScheduledActionService] Re-armed " + loaded + " pending actions (" + overdue + " overdue)");
+    }
+
+    public CompletableFuture<ScheduledAction> schedule(long guildId, ActionType actionType, long targetId,
+                                                       long roleId, long delayMillis) {
+        long createdAt = System.currentTimeMillis();
+        long executeAt = createdAt + delayMillis;
+
+        // A new schedule for the same target replaces the old one, both in the table and in the queue.
+        queue.removeIf(pending -> pending.matches(guildId, targetId, actionType));
+        return DatabaseManager.executeAsync(DatabaseManager.OperationType.WRITE, conn -> {
+            PreparedStatement pstmt = DatabaseManager.prepareCached(conn, INSERT_SQL);
+            pstmt.setLong(1, guildId);
+            pstmt.setString(2, actionType.name());
+            pstmt.setLong(3, targetId);
+            pstmt.setLong(4, roleId);
+            pstmt.setLong(5, createdAt);
+            pstmt.setLong(6, executeAt);
+            pstmt.executeUpdate();
+            return new ScheduledAction(lastInsertId(conn), guildId, actionType, targetId, roleId, createdAt, executeAt);
+        }).thenApply(action -> {
+            enqueue(action);
+            return action;
+        });
+    }
+
+    public CompletableFuture<Integer> cancel(long guildId, long targetId, ActionType actionType) {
+        queue.removeIf(pending -> pending.matches(guildId, targetId, actionType));
+        return DatabaseManager.executeAsync(DatabaseManager.OperationType.WRITE, conn -> {
+            PreparedStatement pstmt = DatabaseManager.prepareCached(conn, CANCEL_SQL);
+            pstmt.setLong(1, guildId);
+            pstmt.setLong(2, targetId);
+            pstmt.setString(3, actionType.name());
+            return pstmt.executeUpdate();
+        });
+    }
+
+    // Called before start() too, so an action inserted while start() is loading the table is queued once.
+    private boolean enqueue(ScheduledAction action) {
+        synchronized (queue) {
+            if (queue.stream().anyMatch(pending -> pending.getId() == action.getId())) {
+                return false;
+            }
+            return queue.add(action);
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            ScheduledAction action;
+            try {
+                action = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            dispatch(action);
+        }
+    }
+
+    private void dispatch(ScheduledAction action) {
+        Handler handler = handlers.get(action.getActionType());
+        if (handler == null) {
+            System.err.println("[ScheduledActionService] No handler for " + action.getActionType() + ", dropping action " + action.getId());
+            delete(action);
+            return;
+        }
+
+        CompletableFuture<?> result;
+        try {
+            result = handler.execute(jda, action);
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((ignored, error) -> {
+            if (error == null) {
+                executed.incrementAndGet();
+                delete(action);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            String description = action.getActionType() + " for " + action.getTargetId() + " in guild " + action.getGuildId();
+            if (isPermanent(cause)) {
+                failed.incrementAndGet();
+                System.err.println("[ScheduledActionService] " + description + " failed permanently, dropping it: " + cause.getMessage());
+                delete(action);
+            } else {
+                retry(action, description, cause);
+            }
+        });
+    }
+
+    private void retry(ScheduledAction action, String description, Throwable cause) {
+        int attempt = action.getAttempts() + 1;
+        if (attempt >= MAX_ATTEMPTS) {
+            // The row stays, so the next start tries again instead of leaving the action lost for good.
+            failed.incrementAndGet();
+            System.err.println("[ScheduledActionService] ❌ " + description + " failed " + attempt +
+                    " times, keeping it for the next restart: " + cause.getMessage());
+            return;
+        }
+
+        long backoff = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << (attempt - 1));
+        // Skip the retry if the action was cancelled or rescheduled while the handler ran.
+        DatabaseManager.executeAsync(DatabaseManager.OperationType.READ, conn -> {
+            PreparedStatement pstmt = DatabaseManager.prepareCached(conn, EXISTS_SQL);
+            pstmt.setLong(1, action.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }).thenAccept(stillPending -> {
+            if (stillPending && running && enqueue(action.retryAt(System.currentTimeMillis() + backoff))) {
+                retried.incrementAndGet();
+                System.err.println("[ScheduledActionService] " + description + " failed (attempt " + attempt + "/" +
+                        MAX_ATTEMPTS + "), retrying in " + backoff / 1000 + "s: " + cause.getMessage());
+            }
+        }).exceptionally(error -> {
+            System.err.println("[ScheduledActionService] Could not re-arm action " + action.getId() + ": " + error.getMessage());
+            return null;
+        });
+    }
+
+    private static boolean isPermanent(Throwable cause) {
+        if (cause instanceof PermanentFailure) {
+            return true;
+        }
+        return cause instanceof ErrorResponseException &&
+                PERMANENT_ERRORS.contains(((ErrorResponseException) cause).getErrorResponse());
+    }
+
+    private void delete(ScheduledAction action) {
+        DatabaseManager.executeAsync(DatabaseManager.OperationType.WRITE, conn -> {
+            PreparedStatement pstmt = DatabaseManager.prepareCached(conn, DELETE_SQL);
+            pstmt.setLong(1, action.getId());
+            return pstmt.executeUpdate();
+        }).exceptionally(error -> {
+            System.err.println("[ScheduledActionService] Could not delete action " + action.getId() + ": " + error.getMessage());
+            return 0;
+        });
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        System.out.println("[ScheduledActionService] Stopped with " + queue.size() + " pending actions (" +
+                executed.get() + " executed, " + retried.get() + " retried, " + failed.get() + " failed this run)");
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private static List<ScheduledAction> loadPending(Connection conn) throws SQLException {
+        List<ScheduledAction> actions = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_ALL_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ActionType actionType;
+                try {
+                    actionType = ActionType.valueOf(rs.getString("action"));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("[ScheduledActionService] Skipping action " + rs.getLong("id") + ": unknown type " + rs.getString("action"));
+                    continue;
+                }
+                actions.add(new ScheduledAction(
+                        rs.getLong("id"),
+                        rs.getLong("guildId"),
+                        actionType,
+                        rs.getLong("targetId"),
+                        rs.getLong("roleId"),
+                        rs.getLong("createdAt"),
+                        rs.getLong("executeAt")
+                ));
+            }
+        }
+        return actions;
+    }
+
+    private static long lastInsertId(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT last_insert_rowid()");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+}
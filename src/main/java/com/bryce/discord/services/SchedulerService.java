@@ -0,0 +1,179 @@
+package com.bryce.discord.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SchedulerService {
+    private static final int THREADS = 2;
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, TaskStats> statsByPurpose = new ConcurrentHashMap<>();
+
+    public SchedulerService() {
+        executor = new ScheduledThreadPoolExecutor(THREADS, daemonThreads("scheduler"));
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    // Failures are caught per run, so one bad run neither kills the thread nor cancels the next run.
+    public ScheduledFuture<?> scheduleAtFixedRate(String purpose, Runnable task, long initialDelay, long period, TimeUnit unit) {
+        TaskStats stats = statsFor(purpose);
+        stats.scheduled.incrementAndGet();
+        System.out.println("[SchedulerService] Scheduled '" + purpose + "' every " + period + " " + unit.name().toLowerCase());
+        TrackedFuture tracked = new TrackedFuture(stats);
+        tracked.delegate = executor.scheduleAtFixedRate(() -> run(purpose, stats, task), initialDelay, period, unit);
+        return tracked;
+    }
+
+    public ScheduledFuture<?> schedule(String purpose, Runnable task, long delay, TimeUnit unit) {
+        TaskStats stats = statsFor(purpose);
+        stats.scheduled.incrementAndGet();
+        TrackedFuture tracked = new TrackedFuture(stats);
+        tracked.delegate = executor.schedule(() -> {
+            try {
+                run(purpose, stats, task);
+            } finally {
+                tracked.settle();
+            }
+        }, delay, unit);
+        return tracked;
+    }
+
+    private void run(String purpose, TaskStats stats, Runnable task) {
+        long start = System.nanoTime();
+        try {
+            task.run();
+            stats.runs.increment();
+        } catch (Throwable t) {
+            stats.failures.increment();
+            System.err.println("[SchedulerService] ❌ Task '" + purpose + "' failed: " + t);
+            t.printStackTrace();
+        } finally {
+            stats.totalNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private TaskStats statsFor(String purpose) {
+        return statsByPurpose.computeIfAbsent(purpose, p -> new TaskStats());
+    }
+
+    public int getScheduledCount(String purpose) {
+        TaskStats stats = statsByPurpose.get(purpose);
+        return stats != null ? stats.scheduled.get() : 0;
+    }
+
+    public String getStats() {
+        StringBuilder sb = new StringBuilder();
+        statsByPurpose.forEach((purpose, stats) -> {
+            long runs = stats.runs.sum();
+            long failures = stats.failures.sum();
+            long avgMs = runs + failures == 0 ? 0 : stats.totalNanos.sum() / (runs + failures) / 1_000_000;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(purpose).append(" [scheduled=").append(stats.scheduled.get())
+                    .append(", runs=").append(runs)
+                    .append(", failures=").append(failures)
+                    .append(", avg=").append(avgMs).append("ms]");
+        });
+        return sb.length() == 0 ? "no tasks" : sb.toString();
+    }
+
+    // Pending runs are dropped; a run already in progress is allowed to finish so it never races the final save.
+    public void shutdown() {
+        if (executor.isShutdown()) return;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[SchedulerService] Tasks still running after " + SHUTDOWN_WAIT_SECONDS + "s, interrupting");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        System.out.println("[SchedulerService] Stopped. " + getStats());
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Takes the task out of the scheduled count exactly once, whether it ran or was cancelled first.
+    private static final class TrackedFuture implements ScheduledFuture<Object> {
+        private final TaskStats stats;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile ScheduledFuture<?> delegate;
+
+        private TrackedFuture(TaskStats stats) {
+            this.stats = stats;
+        }
+
+        private void settle() {
+            if (settled.compareAndSet(false, true)) {
+                stats.scheduled.decrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = delegate.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                settle();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return delegate.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return delegate.get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return delegate.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return delegate.compareTo(other);
+        }
+    }
+
+    private static final class TaskStats {
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+    }
+}
@@ -0,0 +1,233 @@
+package com.bryce.discord.services;
+
+import com.bryce.discord.models.GuildSettings;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+public class SchemaMigrator {
+    private static final String VERSION_KEY = "schema_version";
+    private static final String[] UNSCOPED_TABLES = {"warnings", "moderation_analytics", "command_logs"};
+
+    // Append new migrations at the end with the next version number; never edit one that has shipped.
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Index warnings by user and time",
+                    "CREATE INDEX IF NOT EXISTS idx_warnings_user_time ON warnings (userId, timestamp)"),
+            new Migration(2, "Index moderation_analytics by time, moderator and target",
+                    "CREATE INDEX IF NOT EXISTS idx_analytics_time ON moderation_analytics (timestamp)",
+                    "CREATE INDEX IF NOT EXISTS idx_analytics_moderator_time ON moderation_analytics (moderatorId, timestamp)",
+                    "CREATE INDEX IF NOT EXISTS idx_analytics_target_time ON moderation_analytics (targetId, timestamp)"),
+            new Migration(3, "Index command_logs by time",
+                    "CREATE INDEX IF NOT EXISTS idx_command_logs_time ON command_logs (timestamp)"),
+            new Migration(4, "Scope warnings, analytics and command logs by guild; add per-guild settings",
+                    "ALTER TABLE warnings ADD COLUMN guildId INTEGER NOT NULL DEFAULT 0",
+                    "ALTER TABLE moderation_analytics ADD COLUMN guildId INTEGER NOT NULL DEFAULT 0",
+                    "ALTER TABLE command_logs ADD COLUMN guildId INTEGER NOT NULL DEFAULT 0",
+                    "CREATE TABLE IF NOT EXISTS guild_settings (" +
+                            "guildId INTEGER NOT NULL," +
+                            "key TEXT NOT NULL," +
+                            "value TEXT," +
+                            "PRIMARY KEY (guildId, key)" +
+                            ")",
+                    "CREATE INDEX IF NOT EXISTS idx_warnings_guild_user_time ON warnings (guildId, userId, timestamp)",
+                    "DROP INDEX IF EXISTS idx_warnings_user_time",
+                    "CREATE INDEX IF NOT EXISTS idx_analytics_guild_time ON moderation_analytics (guildId, timestamp)",
+                    "CREATE INDEX IF NOT EXISTS idx_command_logs_guild_time ON command_logs (guildId, timestamp)"),
+            new Migration(5, "Persist scheduled actions such as timed unmutes",
+                    "CREATE TABLE IF NOT EXISTS scheduled_actions (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "guildId INTEGER NOT NULL," +
+                            "action TEXT NOT NULL," +
+                            "targetId INTEGER NOT NULL," +
+                            "roleId INTEGER NOT NULL DEFAULT 0," +
+                            "createdAt BIGINT NOT NULL," +
+                            "executeAt BIGINT NOT NULL," +
+                            "UNIQUE (guildId, targetId, action)" +
+                            ")",
+                    "CREATE INDEX IF NOT EXISTS idx_scheduled_actions_execute_at ON scheduled_actions (executeAt)"),
+            new Migration(6, "Assign pre-guild rows and the global mute role to the bot's only guild",
+                    SchemaMigrator::adoptUnscopedRows)
+    );
+
+    public static void migrate() {
+        migrate(null, List.of());
+    }
+
+    // Runs the migrations that need to know which guilds the bot is in; called once JDA is ready. guildIds are the
+    // guilds in the cache, unavailableGuildIds the ones Discord reported as unavailable (outage), which are not.
+    public static void migrateWithGuilds(List<Long> guildIds, List<Long> unavailableGuildIds) {
+        migrate(guildIds, unavailableGuildIds);
+    }
+
+    // True while a migration that needs the guild list has not run yet, i.e. stored rows may still be unscoped.
+    public static boolean hasPendingGuildMigrations() {
+        try {
+            int currentVersion = DatabaseManager.executeReadWithRetry(SchemaMigrator::readVersion);
+            return MIGRATIONS.stream().anyMatch(migration -> migration.guildStep != null && migration.version > currentVersion);
+        } catch (SQLException e) {
+            System.err.println("[SchemaMigrator] Could not read schema version, assuming guild migrations are pending: " + e.getMessage());
+            return true;
+        }
+    }
+
+    // Stops at the first migration that needs the guild list when it is not known yet, or not known completely
+    // because some guilds are unavailable; everything after it waits too, so schema_version always means
+    // "every migration up to here has run".
+    private static void migrate(List<Long> guildIds, List<Long> unavailableGuildIds) {
+        try {
+            int currentVersion = DatabaseManager.executeReadWithRetry(SchemaMigrator::readVersion);
+            int targetVersion = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+            if (currentVersion >= targetVersion) {
+                System.out.println("[SchemaMigrator] Schema is up to date (version " + currentVersion + ")");
+                return;
+            }
+
+            System.out.println("[SchemaMigrator] Migrating schema from version " + currentVersion + " to " + targetVersion);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= currentVersion) {
+                    continue;
+                }
+                if (migration.guildStep != null && guildIds == null) {
+                    System.out.println("[SchemaMigrator] Migration " + migration.version + " (" + migration.description +
+                            ") will run once the bot is connected");
+                    return;
+                }
+                if (migration.guildStep != null && !unavailableGuildIds.isEmpty()) {
+                    int unscoped = DatabaseManager.executeReadWithRetry(SchemaMigrator::countUnscopedRows);
+                    System.out.println("[SchemaMigrator] ⚠️ Migration " + migration.version + " (" + migration.description +
+                            ") deferred to the next start: " + unavailableGuildIds.size() + " guild(s) unavailable " +
+                            unavailableGuildIds + ", " + unscoped + " rows left unscoped");
+                    return;
+                }
+                long start = System.nanoTime();
+                DatabaseManager.executeWithRetry(conn -> {
+                    apply(conn, migration, guildIds);
+                    return null;
+                });
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                System.out.println("[SchemaMigrator] ✅ Applied migration " + migration.version + " (" +
+                        migration.description + ") in " + elapsedMs + "ms");
+            }
+        } catch (SQLException e) {
+            System.err.println("[SchemaMigrator] ❌ Schema migration failed: " + e.getMessage());
+            throw new IllegalStateException("Schema migration failed, refusing to start on a partial schema", e);
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration, List<Long> guildIds) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : migration.statements) {
+                    stmt.execute(sql);
+                }
+            }
+            if (migration.guildStep != null) {
+                migration.guildStep.apply(conn, guildIds);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO bot_settings (key, value) VALUES (?, ?)")) {
+                pstmt.setString(1, VERSION_KEY);
+                pstmt.setString(2, String.valueOf(migration.version));
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + migration.version + " (" + migration.description + ") failed: "
+                    + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Rows written before guild scoping carry guildId 0. A bot that only sits in one guild can safely claim them,
+    // along with the old global mute role; with several guilds there is no way to tell, so they stay unassigned.
+    private static void adoptUnscopedRows(Connection conn, List<Long> guildIds) throws SQLException {
+        if (guildIds.size() != 1) {
+            System.out.println("[SchemaMigrator] Bot is in " + guildIds.size() + " guilds, leaving " +
+                    countUnscopedRows(conn) + " pre-guild rows unassigned");
+            return;
+        }
+        long guildId = guildIds.get(0);
+        int rows = 0;
+        for (String table : UNSCOPED_TABLES) {
+            try (PreparedStatement pstmt = conn.prepareStatement("UPDATE " + table + " SET guildId = ? WHERE guildId = 0")) {
+                pstmt.setLong(1, guildId);
+                rows += pstmt.executeUpdate();
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT OR IGNORE INTO guild_settings (guildId, key, value) " +
+                        "SELECT ?, key, value FROM bot_settings WHERE key = ?")) {
+            pstmt.setLong(1, guildId);
+            pstmt.setString(2, GuildSettings.MUTE_ROLE_KEY);
+            rows += pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM bot_settings WHERE key = ?")) {
+            pstmt.setString(1, GuildSettings.MUTE_ROLE_KEY);
+            pstmt.executeUpdate();
+        }
+        System.out.println("[SchemaMigrator] Assigned " + rows + " pre-guild rows to guild " + guildId);
+    }
+
+    private static int countUnscopedRows(Connection conn) throws SQLException {
+        int rows = 0;
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : UNSCOPED_TABLES) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table + " WHERE guildId = 0")) {
+                    rows += rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static int readVersion(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT value FROM bot_settings WHERE key = ?")) {
+            pstmt.setString(1, VERSION_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    try {
+                        return Integer.parseInt(rs.getString("value"));
+                    } catch (NumberFormatException e) {
+                        System.err.println("[SchemaMigrator] Ignoring invalid schema_version '" + rs.getString("value") + "'");
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+        private final GuildStep guildStep;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+            this.guildStep = null;
+        }
+
+        private Migration(int version, String description, GuildStep guildStep) {
+            this.version = version;
+            this.description = description;
+            this.statements = new String[0];
+            this.guildStep = guildStep;
+        }
+    }
+
+    @FunctionalInterface
+    private interface GuildStep {
+        void apply(Connection conn, List<Long> guildIds) throws SQLException;
+    }
+}
@@ -0,0 +1,472 @@
+package com.bryce.discord.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WriteBehindQueue {
+
+    public enum BackpressurePolicy { BLOCK, DROP_COMMAND_LOGS, SPILL_TO_DISK }
+
+    public enum WriteKind { WARNING, ANALYTICS, COMMAND_LOG, FLUSH }
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long FLUSH_WINDOW_MS = 5;
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+    private static final Path SPILL_FILE = Paths.get("write_spill.ndjson");
+    // Rows that keep failing after this many spill-and-replay rounds are parked here instead of retried forever.
+    private static final Path FAILED_FILE = Paths.get("write_failed.ndjson");
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final BackpressurePolicy policy;
+    private final Thread writerThread;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Object spillLock = new Object();
+    private volatile boolean running = true;
+    private volatile boolean spillPending;
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder rowsDropped = new LongAdder();
+    private final LongAdder rowsSpilled = new LongAdder();
+    private final LongAdder rowsFailed = new LongAdder();
+    private final LongAdder rowsParked = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    public WriteBehindQueue() {
+        Dotenv env = Dotenv.configure().ignoreIfMissing().load();
+        int capacity = parseInt(env.get("WRITE_QUEUE_CAPACITY"), DEFAULT_CAPACITY);
+        this.policy = parsePolicy(env.get("WRITE_QUEUE_POLICY"));
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.spillPending = Files.exists(SPILL_FILE);
+        if (Files.exists(FAILED_FILE)) {
+            System.err.println("[WriteBehindQueue] ⚠️ " + FAILED_FILE + " holds rows that could not be written; " +
+                    "append it to " + SPILL_FILE + " to retry them");
+        }
+
+        writerThread = new Thread(this::runWriter, "DataService-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        System.out.println("[WriteBehindQueue] Started (capacity=" + capacity + ", policy=" + policy + ")");
+    }
+
+    public void enqueue(WriteKind kind, String sql, Object... params) {
+        PendingWrite write = new PendingWrite(kind, sql, params, null, 0);
+        if (!running) {
+            writeBatch(List.of(write));
+            return;
+        }
+        if (queue.offer(write)) {
+            return;
+        }
+
+        switch (policy) {
+            case DROP_COMMAND_LOGS:
+                if (kind == WriteKind.COMMAND_LOG) {
+                    rowsDropped.increment();
+                    return;
+                }
+                if (evictOneCommandLog()) {
+                    rowsDropped.increment();
+                }
+                putBlocking(write);
+                break;
+            case SPILL_TO_DISK:
+                spill(write);
+                break;
+            case BLOCK:
+            default:
+                putBlocking(write);
+                break;
+        }
+    }
+
+    private boolean evictOneCommandLog() {
+        Iterator<PendingWrite> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().kind == WriteKind.COMMAND_LOG) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean flush() {
+        if (!running || Thread.currentThread() == writerThread) {
+            return queue.isEmpty();
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        putBlocking(new PendingWrite(WriteKind.FLUSH, null, null, latch, 0));
+        try {
+            return latch.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        flush();
+        running = false;
+        // Wake the writer if it is parked in take(); it exits once the marker is processed.
+        queue.offer(new PendingWrite(WriteKind.FLUSH, null, null, new CountDownLatch(1), 0));
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingWrite> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        leftovers.removeIf(pending -> pending.kind == WriteKind.FLUSH);
+        if (!leftovers.isEmpty()) {
+            writeBatch(leftovers);
+        }
+
+        System.out.println("[WriteBehindQueue] Stopped. " + getStats());
+    }
+
+    private void putBlocking(PendingWrite write) {
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("[WriteBehindQueue] Interrupted while queueing a " + write.kind + " row, writing it inline");
+            writeBatch(List.of(write));
+        }
+    }
+
+    private void runWriter() {
+        replaySpill();
+
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running) {
+            try {
+                PendingWrite first = queue.take();
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_WINDOW_MS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    if (queue.drainTo(batch, MAX_BATCH_SIZE - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            processBatch(batch);
+            batch.clear();
+
+            if (queue.isEmpty()) {
+                replaySpill();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            processBatch(batch);
+        }
+    }
+
+    private void processBatch(List<PendingWrite> batch) {
+        List<PendingWrite> rows = new ArrayList<>(batch.size());
+        List<CountDownLatch> flushes = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.kind == WriteKind.FLUSH) {
+                flushes.add(write.flushLatch);
+            } else {
+                rows.add(write);
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            writeBatch(rows);
+        }
+        for (CountDownLatch latch : flushes) {
+            latch.countDown();
+        }
+    }
+
+    // One failing row would otherwise roll back and lose the whole batch, so a failed batch is retried row by row
+    // and only the rows that still fail are spilled for a later replay.
+    private void writeBatch(List<PendingWrite> rows) {
+        try {
+            writeRows(rows);
+            rowsWritten.add(rows.size());
+            batchesWritten.increment();
+            maxBatchSize.accumulateAndGet(rows.size(), Math::max);
+            return;
+        } catch (SQLException e) {
+            if (rows.size() == 1) {
+                spillFailedRow(rows.get(0), e);
+                return;
+            }
+            System.err.println("[WriteBehindQueue] Batch of " + rows.size() + " rows failed, retrying one at a time: " + e.getMessage());
+        }
+
+        for (PendingWrite row : rows) {
+            try {
+                writeRows(List.of(row));
+                rowsWritten.increment();
+                batchesWritten.increment();
+            } catch (SQLException e) {
+                spillFailedRow(row, e);
+            }
+        }
+    }
+
+    private void writeRows(List<PendingWrite> rows) throws SQLException {
+        DatabaseManager.executeWithRetry(DatabaseManager.OperationType.BATCH_WRITE, conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+                try {
+                    for (PendingWrite row : rows) {
+                        PreparedStatement pstmt = statements.get(row.sql);
+                        if (pstmt == null) {
+                            pstmt = DatabaseManager.prepareCached(conn, row.sql);
+                            statements.put(row.sql, pstmt);
+                        }
+                        for (int i = 0; i < row.params.length; i++) {
+                            pstmt.setObject(i + 1, row.params[i]);
+                        }
+                        pstmt.addBatch();
+                    }
+                    for (PreparedStatement pstmt : statements.values()) {
+                        pstmt.executeBatch();
+                    }
+                } catch (SQLException e) {
+                    for (PreparedStatement pstmt : statements.values()) {
+                        pstmt.clearBatch();
+                    }
+                    throw e;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    private void spillFailedRow(PendingWrite row, SQLException error) {
+        rowsFailed.increment();
+        PendingWrite retry = row.nextAttempt();
+        if (retry.attempts < MAX_WRITE_ATTEMPTS) {
+            if (append(SPILL_FILE, retry)) {
+                System.err.println("[WriteBehindQueue] Could not write " + row.kind + " row (attempt " + retry.attempts +
+                        "), spilled for replay: " + error.getMessage());
+                return;
+            }
+        } else if (append(FAILED_FILE, retry)) {
+            rowsParked.increment();
+            System.err.println("[WriteBehindQueue] ❌ Giving up on " + row.kind + " row after " + retry.attempts +
+                    " attempts, kept in " + FAILED_FILE + ": " + error.getMessage());
+            return;
+        }
+        System.err.println("[WriteBehindQueue] ❌ Lost " + row.kind + " row, it could not be written or saved to disk: " +
+                error.getMessage());
+    }
+
+    // Backpressure spill. Falling back to put() must happen outside spillLock: once the queue is full, put() waits on
+    // the writer thread, which needs the lock to replay the spill file.
+    private void spill(PendingWrite write) {
+        if (append(SPILL_FILE, write)) {
+            rowsSpilled.increment();
+            return;
+        }
+        System.err.println("[WriteBehindQueue] Failed to spill row to disk, blocking instead");
+        putBlocking(write);
+    }
+
+    private boolean append(Path file, PendingWrite write) {
+        Map<String, Object> line = new HashMap<>();
+        line.put("kind", write.kind.name());
+        line.put("sql", write.sql);
+        line.put("params", write.params);
+        line.put("attempts", write.attempts);
+
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(mapper.writeValueAsString(line));
+                writer.newLine();
+                if (file.equals(SPILL_FILE)) {
+                    spillPending = true;
+                }
+                return true;
+            } catch (IOException e) {
+                System.err.println("[WriteBehindQueue] Could not append row to " + file + ": " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replaySpill() {
+        if (!spillPending) {
+            return;
+        }
+        Path replayFile = Paths.get(SPILL_FILE + ".replay");
+        synchronized (spillLock) {
+            spillPending = false;
+            if (!Files.exists(SPILL_FILE)) {
+                return;
+            }
+            try {
+                Files.move(SPILL_FILE, replayFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                System.err.println("[WriteBehindQueue] Could not rotate spill file: " + e.getMessage());
+                return;
+            }
+        }
+
+        int replayed = 0;
+        List<PendingWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Map<String, Object> row = mapper.readValue(line, Map.class);
+                List<Object> params = (List<Object>) row.get("params");
+                Number attempts = (Number) row.get("attempts");
+                batch.add(new PendingWrite(WriteKind.valueOf((String) row.get("kind")), (String) row.get("sql"),
+                        params.toArray(), null, attempts != null ? attempts.intValue() : 0));
+                if (batch.size() == MAX_BATCH_SIZE) {
+                    writeBatch(batch);
+                    replayed += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                replayed += batch.size();
+            }
+            Files.delete(replayFile);
+            System.out.println("[WriteBehindQueue] Replayed " + replayed + " spilled rows");
+        } catch (IOException e) {
+            System.err.println("[WriteBehindQueue] Failed to replay spill file " + replayFile + ": " + e.getMessage());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchesWritten.sum();
+        return batches == 0 ? 0 : (double) rowsWritten.sum() / batches;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public long getRowsDropped() {
+        return rowsDropped.sum();
+    }
+
+    public long getRowsSpilled() {
+        return rowsSpilled.sum();
+    }
+
+    public String getStats() {
+        return String.format("depth=%d, rows=%d, batches=%d, avg batch=%.1f, max batch=%d, dropped=%d, spilled=%d, " +
+                        "failed=%d, parked=%d",
+                getQueueDepth(), getRowsWritten(), getBatchesWritten(), getAverageBatchSize(), getMaxBatchSize(),
+                getRowsDropped(), getRowsSpilled(), rowsFailed.sum(), rowsParked.sum());
+    }
+
+    private static BackpressurePolicy parsePolicy(String value) {
+        if (value == null || value.isEmpty()) {
+            return BackpressurePolicy.BLOCK;
+        }
+        try {
+            return BackpressurePolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[WriteBehindQueue] Unknown WRITE_QUEUE_POLICY '" + value + "', using BLOCK");
+            return BackpressurePolicy.BLOCK;
+        }
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class PendingWrite {
+        private final WriteKind kind;
+        private final String sql;
+        private final Object[] params;
+        private final CountDownLatch flushLatch;
+        private final int attempts;
+
+        private PendingWrite(WriteKind kind, String sql, Object[] params, CountDownLatch flushLatch, int attempts) {
+            this.kind = kind;
+            this.sql = sql;
+            this.params = params;
+            this.flushLatch = flushLatch;
+            this.attempts = attempts;
+        }
+
+        private PendingWrite nextAttempt() {
+            return new PendingWrite(kind, sql, params, null, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bryce.discord.utils;
+
+import net.dv8tion.jda.api.entities.Message;
+
+public class ContentClassifier {
+    public static final int HAS_CONTENT = 1;
+    public static final int HAS_TEXT = 1 << 1;
+    public static final int HAS_LINK = 1 << 2;
+    public static final int ONLY_LINKS = 1 << 3;
+    public static final int HAS_ATTACHMENT = 1 << 4;
+    public static final int HAS_IMAGE = 1 << 5;
+    public static final int HAS_VIDEO = 1 << 6;
+    public static final int HAS_FILE = 1 << 7;
+
+    public static int classify(Message message) {
+        int flags = classify(message.getContentRaw());
+        for (Message.Attachment attachment : message.getAttachments()) {
+            flags |= HAS_ATTACHMENT;
+            if (attachment.isImage()) {
+                flags |= HAS_IMAGE;
+            } else if (attachment.isVideo()) {
+                flags |= HAS_VIDEO;
+            } else {
+                flags |= HAS_FILE;
+            }
+        }
+        return flags;
+    }
+
+    // Single pass over the words: a word starting with a scheme is a link, anything else is text.
+    public static int classify(String content) {
+        if (content == null || content.isEmpty()) {
+            return 0;
+        }
+
+        int flags = HAS_CONTENT;
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(content.charAt(i))) i++;
+            if (i == length) break;
+
+            int start = i;
+            while (i < length && !isWhitespace(content.charAt(i))) i++;
+
+            if (isLinkAt(content, start, i)) {
+                flags |= HAS_LINK;
+            } else {
+                flags |= HAS_TEXT;
+                if ((flags & HAS_LINK) == 0 && containsLink(content, start + 1, i)) {
+                    flags |= HAS_LINK;
+                }
+            }
+        }
+
+        if ((flags & (HAS_LINK | HAS_TEXT)) == HAS_LINK) {
+            flags |= ONLY_LINKS;
+        }
+        return flags;
+    }
+
+    public static boolean hasAny(int classification, int flags) {
+        return (classification & flags) != 0;
+    }
+
+    private static boolean containsLink(String content, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (content.charAt(i) == 'h' && isLinkAt(content, i, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "http://" or "https://" followed by at least one more character of the same word.
+    private static boolean isLinkAt(String content, int start, int end) {
+        if (!content.startsWith("http", start)) {
+            return false;
+        }
+        int schemeEnd = start + 4;
+        if (schemeEnd < end && content.charAt(schemeEnd) == 's') {
+            schemeEnd++;
+        }
+        return content.startsWith("://", schemeEnd) && schemeEnd + 3 < end;
+    }
+
+    // Same set as the \s regex class the old checks split on.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,52 @@
+package com.bryce.discord.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free histogram with power-of-two microsecond buckets (1us up to ~67s), precise enough for p50/p95/p99.
+public class LatencyHistogram {
+    private static final int BUCKETS = 27;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    // Upper bound of the bucket holding the given percentile, in microseconds.
+    public long percentileMicros(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return 1L << (i + 1);
+            }
+        }
+        return 1L << BUCKETS;
+    }
+
+    public String summary() {
+        return String.format("n=%d p50<=%s p95<=%s p99<=%s max=%s", count(),
+                formatMicros(percentileMicros(50)), formatMicros(percentileMicros(95)),
+                formatMicros(percentileMicros(99)), formatMicros(maxNanos.get() / 1_000));
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1_000) return micros + "us";
+        if (micros < 1_000_000) return String.format("%.1fms", micros / 1_000.0);
+        return String.format("%.2fs", micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,131 @@
+package com.bryce.discord.utils;
+
+// Not thread-safe; callers either confine it to one thread, guard it, or fill it once and publish it through a final field.
+public class LongIntMap {
+    private static final long EMPTY = LongKeys.EMPTY;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = LongKeys.capacityFor(expectedSize);
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    public void put(long key, int value) {
+        int slot = claimSlot(key);
+        values[slot] = value;
+    }
+
+    public void add(long key, int delta) {
+        int slot = claimSlot(key);
+        values[slot] += delta;
+    }
+
+    public int get(long key) {
+        int slot = LongKeys.findSlot(keys, key);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addAllTo(LongIntMap target) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                target.add(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Keys of the `limit` largest values, highest first, selected with a bounded min-heap of slot indexes.
+    public long[] topKeys(int limit) {
+        if (limit <= 0 || size == 0) {
+            return new long[0];
+        }
+        int[] heap = new int[Math.min(limit, size)];
+        int heapSize = 0;
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) continue;
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (values[slot] > values[heap[0]]) {
+                heap[0] = slot;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        long[] result = new long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = keys[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+        return result;
+    }
+
+    // Resizing replaces the arrays, so callers must take the slot before indexing into values.
+    private int claimSlot(long key) {
+        LongKeys.checkKey(key);
+        int slot = LongKeys.findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            if (LongKeys.overLoaded(size + 1, keys.length)) {
+                resize();
+                slot = LongKeys.findSlot(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (values[heap[parent]] <= values[slot]) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        int index = 0;
+        int slot = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && values[heap[child + 1]] < values[heap[child]]) {
+                child++;
+            }
+            if (values[slot] <= values[heap[child]]) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = LongKeys.findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.bryce.discord.utils;
+
+// Linear probing over a power-of-two long[] of keys, shared by the primitive-keyed maps in this package.
+// Key 0 marks an empty slot; Discord never hands out snowflake 0.
+final class LongKeys {
+    static final long EMPTY = 0L;
+
+    private LongKeys() {
+    }
+
+    // Smallest power of two that holds expectedSize keys at no more than half full.
+    static int capacityFor(int expectedSize) {
+        return Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    }
+
+    static boolean overLoaded(int size, int capacity) {
+        return size * 2 > capacity;
+    }
+
+    static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("key 0 is reserved");
+        }
+    }
+
+    // The slot holding key, or the empty slot where it would go.
+    static int findSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,98 @@
+package com.bryce.discord.utils;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+public class LongObjectMap<V> {
+    private static final long EMPTY = LongKeys.EMPTY;
+
+    // Reads take the current table without locking; writers copy it, change the copy and publish it.
+    // Meant for small, read-mostly maps such as per-guild settings where writes are rare.
+    private volatile Table table = new Table(new long[8], new Object[8], 0);
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table current = table;
+        int slot = LongKeys.findSlot(current.keys, key);
+        return current.keys[slot] == EMPTY ? null : (V) current.values[slot];
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public synchronized V put(long key, V value) {
+        LongKeys.checkKey(key);
+        Table current = table;
+        long[] keys = current.keys;
+        Object[] values = current.values;
+        int size = current.size;
+
+        int slot = LongKeys.findSlot(keys, key);
+        V previous = keys[slot] == EMPTY ? null : castValue(values[slot]);
+        if (keys[slot] == EMPTY && LongKeys.overLoaded(size + 1, keys.length)) {
+            keys = new long[current.keys.length * 2];
+            values = new Object[keys.length];
+            for (int i = 0; i < current.keys.length; i++) {
+                if (current.keys[i] != EMPTY) {
+                    int target = LongKeys.findSlot(keys, current.keys[i]);
+                    keys[target] = current.keys[i];
+                    values[target] = current.values[i];
+                }
+            }
+            slot = LongKeys.findSlot(keys, key);
+        } else {
+            keys = Arrays.copyOf(keys, keys.length);
+            values = Arrays.copyOf(values, values.length);
+        }
+
+        if (keys[slot] == EMPTY) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        table = new Table(keys, values, size);
+        return previous;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        synchronized (this) {
+            value = get(key);
+            if (value == null) {
+                value = factory.apply(key);
+                put(key, value);
+            }
+            return value;
+        }
+    }
+
+    public synchronized void clear() {
+        table = new Table(new long[8], new Object[8], 0);
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V castValue(Object value) {
+        return (V) value;
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final int size;
+
+        private Table(long[] keys, Object[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.bryce.discord.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a stream across numbered files (<base>.part001, .part002, ...) of at most partSize bytes each,
+// so an export larger than the upload limit can be sent as several attachments.
+public class PartFileOutputStream extends OutputStream {
+    private final Path base;
+    private final long partSize;
+    private final List<Path> parts = new ArrayList<>();
+
+    private OutputStream current;
+    private long currentSize;
+    private long totalSize;
+
+    public PartFileOutputStream(Path base, long partSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be positive");
+        }
+        this.base = base;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current == null || currentSize >= partSize) {
+            nextPart();
+        }
+        current.write(b);
+        currentSize++;
+        totalSize++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (current == null || currentSize >= partSize) {
+                nextPart();
+            }
+            int n = (int) Math.min(len, partSize - currentSize);
+            current.write(b, off, n);
+            currentSize += n;
+            totalSize += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void nextPart() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        Path part = base.resolveSibling(base.getFileName() + String.format(".part%03d", parts.size() + 1));
+        parts.add(part);
+        current = new BufferedOutputStream(Files.newOutputStream(part));
+        currentSize = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    // A single part is renamed back to the base name so small exports keep a plain file name.
+    public List<Path> finish() throws IOException {
+        close();
+        if (parts.size() == 1) {
+            Files.move(parts.get(0), base);
+            parts.set(0, base);
+        }
+        return List.copyOf(parts);
+    }
+
+    // Every file written so far, including the renamed base file once finish() has run.
+    public List<Path> getParts() {
+        return List.copyOf(parts);
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+}
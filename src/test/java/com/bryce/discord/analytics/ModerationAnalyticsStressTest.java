@@ -0,0 +1,216 @@
+package com.bryce.discord.analytics;
+
+import com.bryce.discord.models.ModAction;
+import com.bryce.discord.services.DataService;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModerationAnalyticsStressTest {
+    private static final int WRITERS = 8;
+    private static final int ACTIONS_PER_WRITER = 2_000;
+    private static final int STORED_ACTIONS = 10_000;
+    private static final long[] GUILDS = {111L, 222L, 333L};
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    void concurrentAppendsAndLateInsertsAreNeverLost() throws Exception {
+        ActionLog log = new ActionLog();
+        long now = System.currentTimeMillis();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2);
+        try {
+            List<Future<List<ModAction>>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                long seed = w;
+                writers.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    List<ModAction> written = new ArrayList<>(ACTIONS_PER_WRITER);
+                    for (int i = 0; i < ACTIONS_PER_WRITER; i++) {
+                        // One in four lands well before the tail and goes through the copy-on-write late insert.
+                        long timestamp = random.nextInt(4) == 0 ? now - random.nextInt((int) DAY_MS) : System.currentTimeMillis();
+                        ModAction action = action(0L, ActionType.WARN, "m" + seed, "t" + i, timestamp);
+                        log.append(action);
+                        written.add(action);
+                    }
+                    return written;
+                }));
+            }
+            Future<?> reader = pool.submit(() -> {
+                while (writing.get()) {
+                    assertSortedAndComplete(log.snapshot());
+                }
+                return null;
+            });
+
+            Set<ModAction> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<List<ModAction>> writer : writers) {
+                expected.addAll(writer.get(60, TimeUnit.SECONDS));
+            }
+            writing.set(false);
+            reader.get(60, TimeUnit.SECONDS);
+
+            ActionLog.Snapshot snapshot = log.snapshot();
+            assertSortedAndComplete(snapshot);
+            assertEquals(expected.size(), snapshot.size());
+            Set<ModAction> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+            actual.addAll(snapshot);
+            assertEquals(expected, actual);
+            assertTrue(log.getOutOfOrderInserts() > 0, "late-insert path was not exercised");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void recordActionRacingWarmUpLosesNothing() throws Exception {
+        long now = System.currentTimeMillis();
+        FakeDataService dataService = new FakeDataService(now);
+        ModerationAnalytics analytics = new ModerationAnalytics(dataService);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    User moderator = user("mod" + writer);
+                    for (int i = 0; i < ACTIONS_PER_WRITER; i++) {
+                        Guild guild = guild(GUILDS[i % GUILDS.length]);
+                        analytics.recordAction(guild, ActionType.values()[i % ActionType.values().length], moderator,
+                                user("target" + (i % 50)), "stress", 0, 1);
+                    }
+                    return null;
+                }));
+            }
+            analytics.startWarmUp();
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int live = WRITERS * ACTIONS_PER_WRITER;
+        List<ModAction> all = analytics.getActionsByPeriod(0);
+        assertTrue(analytics.isWarmUpComplete());
+        assertEquals(STORED_ACTIONS + live, all.size());
+        assertSortedAndComplete((ActionLog.Snapshot) all);
+
+        int byGuild = 0;
+        int byRollup = 0;
+        for (long guildId : GUILDS) {
+            byGuild += analytics.getActionsByGuild(guildId, 0).size();
+            byRollup += analytics.getActionCountsByType(guildId, 365).values().stream().mapToInt(Integer::intValue).sum();
+        }
+        assertEquals(STORED_ACTIONS + live, byGuild);
+        assertEquals(STORED_ACTIONS + live, byRollup);
+
+        int byType = 0;
+        for (ActionType type : ActionType.values()) {
+            byType += analytics.getActionsByType(type, 0).size();
+        }
+        assertEquals(STORED_ACTIONS + live, byType);
+
+        int byModerator = analytics.getActionsByModerator("stored-mod", 0).size();
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(ACTIONS_PER_WRITER, analytics.getActionsByModerator("mod" + w, 0).size());
+            byModerator += ACTIONS_PER_WRITER;
+        }
+        assertEquals(STORED_ACTIONS + live, byModerator);
+    }
+
+    private static void assertSortedAndComplete(ActionLog.Snapshot snapshot) {
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < snapshot.size(); i++) {
+            ModAction action = snapshot.get(i);
+            assertNotNull(action, "hole at index " + i);
+            assertFalse(action.getTimestamp() < previous, "out of order at index " + i);
+            previous = action.getTimestamp();
+        }
+    }
+
+    private static ModAction action(long guildId, ActionType type, String moderatorId, String targetId, long timestamp) {
+        return new ModAction(guildId, type, moderatorId, moderatorId, targetId, targetId, "stress", timestamp, 0, 1);
+    }
+
+    private static User user(String id) {
+        return proxy(User.class, Map.of("getId", id, "getName", id));
+    }
+
+    private static Guild guild(long id) {
+        return proxy(Guild.class, Map.of("getIdLong", id));
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (answers.containsKey(method.getName())) {
+                return answers.get(method.getName());
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    // Serves STORED_ACTIONS historical rows in small pages, spread over the last 30 days and in insert order rather
+    // than time order, and pauses between pages so live records interleave with the warm-up.
+    private static final class FakeDataService extends DataService {
+        private final long now;
+
+        private FakeDataService(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long getModerationAnalyticsMaxRowId() {
+            return STORED_ACTIONS;
+        }
+
+        @Override
+        public long streamModerationAnalytics(long maxRowId, int pageSize, Consumer<List<ModAction>> pageConsumer) {
+            Random random = new Random(7);
+            List<ModAction> page = new ArrayList<>(pageSize);
+            for (int i = 0; i < maxRowId; i++) {
+                long timestamp = now - random.nextInt((int) (30 * DAY_MS / 1000)) * 1000L;
+                page.add(action(GUILDS[i % GUILDS.length], ActionType.values()[i % ActionType.values().length],
+                        "stored-mod", "stored-target" + (i % 100), timestamp));
+                if (page.size() == 1_000) {
+                    pageConsumer.accept(page);
+                    page = new ArrayList<>(pageSize);
+                    Thread.yield();
+                }
+            }
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+            return maxRowId;
+        }
+
+        @Override
+        public void saveModerationAnalytics(ModAction action) {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.bryce.discord.benchmarks;
+
+import com.bryce.discord.utils.ContentClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Per-message cost of the media-only channel check: the old pair of regex checks against one classifier pass.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentClassifierBenchmark {
+    private static final int CORPUS_SIZE = 10_000;
+
+    private String[] messages;
+
+    @Setup
+    public void setUp() {
+        messages = MessageCorpus.generate(CORPUS_SIZE, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public int regexChecks() {
+        int violations = 0;
+        for (String content : messages) {
+            boolean hasMedia = content.matches(".*https?://\\S+.*");
+            boolean onlyMedia = content.trim().isEmpty() || Arrays.stream(content.trim().split("\\s+"))
+                    .filter(word -> !word.isEmpty())
+                    .allMatch(word -> word.matches("https?://\\S+.*"));
+            if (!hasMedia || !onlyMedia) violations++;
+        }
+        return violations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public int classifier() {
+        int violations = 0;
+        for (String content : messages) {
+            int flags = ContentClassifier.classify(content);
+            boolean hasMedia = ContentClassifier.hasAny(flags, ContentClassifier.HAS_LINK);
+            boolean onlyMedia = !ContentClassifier.hasAny(flags, ContentClassifier.HAS_TEXT);
+            if (!hasMedia || !onlyMedia) violations++;
+        }
+        return violations;
+    }
+}
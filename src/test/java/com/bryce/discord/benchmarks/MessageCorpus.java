@@ -0,0 +1,65 @@
+package com.bryce.discord.benchmarks;
+
+import java.util.Random;
+
+// Deterministic stand-in for a day of traffic in a busy server: short chat, media links, mentions and emotes,
+// the odd multi-line post and a few long paragraphs.
+final class MessageCorpus {
+    private static final String[] CHAT = {
+            "lol", "gg", "anyone up for a match?", "that was insane", "brb", "wait what happened",
+            "can someone help me with the quest", "ok", "no way", "thanks!", "did you see the patch notes",
+            "who's streaming tonight", "ngl that's kinda sus", "pls read the rules", "what time is the event",
+            "i think the server is lagging", "same", "haha", "good morning everyone", "👀"
+    };
+    private static final String[] LINKS = {
+            "https://tenor.com/view/cat-dance-gif-12345678",
+            "https://cdn.discordapp.com/attachments/1099664949384593499/1234567890/screenshot.png",
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "https://i.imgur.com/abcdEFG.jpeg",
+            "https://twitter.com/someone/status/1790000000000000000",
+            "http://example.com/page?ref=discord"
+    };
+    private static final String[] DECORATIONS = {"<@1211714929665515540>", "<:pepe:980866114353508412>", "<#1099483814377562192>", "**", "||spoiler||"};
+
+    private MessageCorpus() {
+    }
+
+    static String[] generate(int size, long seed) {
+        Random random = new Random(seed);
+        String[] messages = new String[size];
+        for (int i = 0; i < size; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 50) {
+                messages[i] = sentence(random);
+            } else if (kind < 65) {
+                messages[i] = pick(random, LINKS);
+            } else if (kind < 80) {
+                messages[i] = sentence(random) + " " + pick(random, LINKS);
+            } else if (kind < 90) {
+                messages[i] = sentence(random) + "\n" + sentence(random) + "\n" + pick(random, LINKS);
+            } else {
+                StringBuilder paragraph = new StringBuilder();
+                while (paragraph.length() < 600) {
+                    paragraph.append(sentence(random)).append(". ");
+                }
+                messages[i] = paragraph.toString();
+            }
+        }
+        return messages;
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder(pick(random, CHAT));
+        if (random.nextInt(4) == 0) {
+            sentence.append(' ').append(pick(random, DECORATIONS));
+        }
+        if (random.nextInt(3) == 0) {
+            sentence.append(' ').append(pick(random, CHAT));
+        }
+        return sentence.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
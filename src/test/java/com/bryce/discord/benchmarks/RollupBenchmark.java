@@ -0,0 +1,135 @@
+package com.bryce.discord.benchmarks;
+
+import com.bryce.discord.analytics.ActionType;
+import com.bryce.discord.analytics.ModerationAnalytics;
+import com.bryce.discord.models.ModAction;
+import com.bryce.discord.services.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// The /modstats aggregates served from per-day rollups against the full scan over the window's actions that
+// ModerationAnalytics ran before the rollups existed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollupBenchmark {
+    private static final long GUILD_ID = 1099483814377562192L;
+    private static final int HISTORY_DAYS = 90;
+    private static final int LIMIT = 5;
+
+    @Param({"100000"})
+    private int storedActions;
+
+    @Param({"7", "30"})
+    private int days;
+
+    private ModerationAnalytics analytics;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        analytics = new ModerationAnalytics(new StoredActions(storedActions));
+        analytics.startWarmUp();
+        while (!analytics.isWarmUpComplete()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Integer> scanTopModerators() {
+        Map<String, Integer> moderatorCounts = new HashMap<>();
+        Map<String, String> moderatorNames = new HashMap<>();
+        for (ModAction action : analytics.getActionsByGuild(GUILD_ID, days)) {
+            moderatorCounts.put(action.getModeratorId(), moderatorCounts.getOrDefault(action.getModeratorId(), 0) + 1);
+            moderatorNames.put(action.getModeratorId(), action.getModeratorName());
+        }
+        return moderatorCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(LIMIT)
+                .collect(Collectors.toMap(entry -> moderatorNames.getOrDefault(entry.getKey(), entry.getKey()),
+                        Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
+    }
+
+    @Benchmark
+    public Map<String, Integer> rollupTopModerators() {
+        return analytics.getTopModerators(GUILD_ID, days, LIMIT);
+    }
+
+    @Benchmark
+    public Map<ActionType, Integer> scanCountsByType() {
+        Map<ActionType, Integer> typeCounts = new HashMap<>();
+        for (ModAction action : analytics.getActionsByGuild(GUILD_ID, days)) {
+            typeCounts.put(action.getActionType(), typeCounts.getOrDefault(action.getActionType(), 0) + 1);
+        }
+        return typeCounts;
+    }
+
+    @Benchmark
+    public Map<ActionType, Integer> rollupCountsByType() {
+        return analytics.getActionCountsByType(GUILD_ID, days);
+    }
+
+    // In-memory history for the warm-up: a few dozen moderators acting on a few thousand members over HISTORY_DAYS.
+    private static final class StoredActions extends DataService {
+        private final int count;
+
+        private StoredActions(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public long getModerationAnalyticsMaxRowId() {
+            return count;
+        }
+
+        @Override
+        public long streamModerationAnalytics(long maxRowId, int pageSize, Consumer<List<ModAction>> pageConsumer) {
+            Random random = new Random(42);
+            // Rows come back in insert (and so time) order, like the real table
+            long start = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(HISTORY_DAYS);
+            long spacing = TimeUnit.DAYS.toMillis(HISTORY_DAYS) / maxRowId;
+            ActionType[] types = ActionType.values();
+            List<ModAction> page = new ArrayList<>(pageSize);
+            for (long i = 0; i < maxRowId; i++) {
+                long timestamp = start + i * spacing;
+                String moderator = String.valueOf(1211714929665515540L + random.nextInt(40));
+                String target = String.valueOf(300_000_000_000_000_000L + random.nextInt(3_000));
+                page.add(new ModAction(GUILD_ID, types[random.nextInt(types.length)], moderator, "mod" + moderator,
+                        target, "user" + target, "benchmark", timestamp, 0, 1));
+                if (page.size() == pageSize) {
+                    pageConsumer.accept(page);
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+            }
+            return maxRowId;
+        }
+
+        @Override
+        public void saveModerationAnalytics(ModAction action) {
+        }
+    }
+}
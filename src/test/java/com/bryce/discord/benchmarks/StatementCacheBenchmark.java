@@ -0,0 +1,103 @@
+package com.bryce.discord.benchmarks;
+
+import com.bryce.discord.services.StatementCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Per-row cost of the warning insert as the write-behind writer issues it, in batches of BATCH_SIZE rows per
+// transaction: preparing the statement for every row, as saveWarnRecord used to, against a per-connection cache.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final String INSERT_WARNING_SQL =
+            "INSERT INTO warnings (guildId, userId, moderatorId, reason, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    private Path directory;
+    private Connection connection;
+    private StatementCache cache;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("statement-cache-bench");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + directory.resolve("bench.db"));
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("CREATE TABLE warnings (id SERIAL PRIMARY KEY, userId TEXT NOT NULL, moderatorId TEXT, " +
+                    "reason TEXT, timestamp BIGINT, guildId INTEGER NOT NULL DEFAULT 0)");
+            stmt.execute("CREATE INDEX idx_warnings_guild_user_time ON warnings (guildId, userId, timestamp)");
+        }
+        connection.setAutoCommit(false);
+        cache = new StatementCache(connection, 32);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cache.closeAll();
+        connection.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void uncached() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_WARNING_SQL)) {
+                bind(pstmt);
+                pstmt.executeUpdate();
+            }
+        }
+        connection.commit();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void cached() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            PreparedStatement pstmt = cache.prepare(INSERT_WARNING_SQL);
+            bind(pstmt);
+            pstmt.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private void bind(PreparedStatement pstmt) throws SQLException {
+        long n = next++;
+        pstmt.setLong(1, 1099483814377562192L + (n & 3));
+        pstmt.setString(2, String.valueOf(300_000_000_000_000_000L + (n % 5_000)));
+        pstmt.setString(3, "1211714929665515540");
+        pstmt.setString(4, "Spamming links in #general");
+        pstmt.setLong(5, 1_790_000_000_000L + n);
+    }
+}
@@ -0,0 +1,79 @@
+package com.bryce.discord.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentClassifierTest {
+
+    // The checks MessageUtils ran before ContentClassifier replaced them.
+    static boolean regexContainsLinks(String content) {
+        return content.matches(".*https?://\\S+.*");
+    }
+
+    static boolean regexContainsOnlyLinks(String content) {
+        return Arrays.stream(content.trim().split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .allMatch(word -> word.matches("https?://\\S+.*"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", " ", "\t \f", "hello", "hello world",
+            "http://", "https://", "http:// x", "https:// ", "http:/x.com", "https:x.com", "httpx://a", "HTTP://A.COM",
+            "http://a", "https://a", "https://cdn.discordapp.com/a.png", "  https://a.com  ", "https://a.com https://b.com",
+            "https://a.com and text", "text https://a.com",
+            "seehttps://a.com", "abchttp://", "xhttps://a https://b", "(https://a.com)", "<https://a.com>",
+            "https://https://a", "http://\u00A0", "word\u00A0https://a.com", "https://a.com\u00A0text",
+            "\u2028", "<@1234> https://tenor.com/view/x", "```https://a.com```"
+    })
+    void matchesRegexOnSingleLineEdgeCases(String content) {
+        assertEquals(regexContainsLinks(content), MessageUtils.containsLinks(content), "containsLinks: " + content);
+        assertEquals(regexContainsOnlyLinks(content), MessageUtils.containsOnlyLinks(content), "containsOnlyLinks: " + content);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"hello\nhttps://a.com", "https://a.com\n", "line one\r\nline two https://a.com", "\nhttps://a",
+            "a\u2028https://a.com"})
+    void detectsLinksAfterLineBreaksWhereRegexDidNot(String content) {
+        assertFalse(regexContainsLinks(content));
+        assertTrue(MessageUtils.containsLinks(content));
+    }
+
+    @Test
+    void multiLineOnlyLinksMatchesRegex() {
+        String content = "https://a.com\nhttps://b.com\r\n\thttps://c.com";
+        assertTrue(regexContainsOnlyLinks(content));
+        assertTrue(MessageUtils.containsOnlyLinks(content));
+        assertEquals(regexContainsOnlyLinks("https://a.com\ntext"), MessageUtils.containsOnlyLinks("https://a.com\ntext"));
+    }
+
+    @Test
+    void linkEmbeddedInWordIsALinkButNotOnlyLinks() {
+        int flags = ContentClassifier.classify("checkhttps://a.com");
+        assertTrue(ContentClassifier.hasAny(flags, ContentClassifier.HAS_LINK));
+        assertTrue(ContentClassifier.hasAny(flags, ContentClassifier.HAS_TEXT));
+        assertFalse(ContentClassifier.hasAny(flags, ContentClassifier.ONLY_LINKS));
+    }
+
+    @Test
+    void matchesRegexOnRandomSingleLineMessages() {
+        String[] pieces = {"http", "https", "://", ":/", "s", "a", ".com", "/x", " ", "  ", "\t", "h", "word", " ", "<", ">"};
+        Random random = new Random(42);
+        for (int n = 0; n < 50_000; n++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                content.append(pieces[random.nextInt(pieces.length)]);
+            }
+            matchesRegexOnSingleLineEdgeCases(content.toString());
+        }
+    }
+}